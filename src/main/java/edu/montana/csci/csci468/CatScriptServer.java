@@ -5,11 +5,14 @@ import edu.montana.csci.csci468.js.JSTranspiler;
 import edu.montana.csci.csci468.parser.CatScriptParser;
 import edu.montana.csci.csci468.parser.ParseError;
 import edu.montana.csci.csci468.parser.ParseErrorException;
+import edu.montana.csci.csci468.parser.ProgramCache;
 import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
 import edu.montana.csci.csci468.tokenizer.CatScriptTokenizer;
 import edu.montana.csci.csci468.tokenizer.TokenList;
 import edu.montana.csci.csci468.util.HTMLParseTreeRenderer;
 import edu.montana.csci.csci468.util.Web;
+import spark.Request;
+import spark.Session;
 import spark.Spark;
 
 import java.net.URL;
@@ -18,11 +21,18 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import static spark.Spark.*;
 
 class CatScriptServer {
+
+    // scripts that have been run before are loaded verified instead of being parsed again.  The
+    // cache is opened on first use, if it can't be every script is parsed and verified instead.
+    private static ProgramCache programCache;
+    private static boolean programCacheFailed;
+
     public static void main(String[] args) {
         port(6789);
         Spark.staticFiles.location("/public");
@@ -48,23 +58,33 @@ class CatScriptServer {
 
         get("/tokenize", (req, resp) -> {
             String source = req.queryParams("src");
-            TokenList tokens = new CatScriptTokenizer(source).getTokens();
-            return "<pre>" +
+            EditorState editor = editorState(req);
+            TokenList previous = editor.tokens.getAndSet(null);
+            TokenList tokens = previous == null ? new CatScriptTokenizer(source).getTokens() :
+                    CatScriptTokenizer.retokenize(previous, source).getTokens();
+            String html = "<pre>" +
                     tokens.stream().map(token -> token.toString() + "\n").collect(Collectors.toList()) +
                     "</pr>";
+            editor.tokens.set(tokens);
+            return html;
         });
 
         get("/parse", (req, resp) -> {
             String source = req.queryParams("src");
-            CatScriptProgram program = new CatScriptParser().parse(source);
-            return HTMLParseTreeRenderer.render(program);
+            EditorState editor = editorState(req);
+            CatScriptProgram previous = editor.program.getAndSet(null);
+            CatScriptProgram program = previous == null ? new CatScriptParser().parse(source) :
+                    new CatScriptParser().reparse(previous, source);
+            String html = HTMLParseTreeRenderer.render(program);
+            // a later reparse moves the program's tokens, so it is only handed on once rendered
+            editor.program.set(program);
+            return html;
         });
 
         get("/evaluate", (req, resp) -> {
             String source = req.queryParams("src");
-            CatScriptProgram program = new CatScriptParser().parse(source);
             try {
-                program.verify();
+                CatScriptProgram program = loadVerified(source);
                 program.execute();
                 return program.getOutput();
             } catch (ParseErrorException parseErrorException) {
@@ -75,10 +95,8 @@ class CatScriptServer {
 
         get("/transpile", (req, resp) -> {
             String source = req.queryParams("src");
-
-            CatScriptProgram program = new CatScriptParser().parse(source);
             try {
-                program.verify();
+                CatScriptProgram program = loadVerified(source);
                 JSTranspiler jsTranspiler = new JSTranspiler(program);
                 String jsSource = jsTranspiler.getJavascriptSource();
                 String output = jsTranspiler.evaluate();
@@ -91,9 +109,8 @@ class CatScriptServer {
 
         get("/compile", (req, resp) -> {
             String source = req.queryParams("src");
-            CatScriptProgram program = new CatScriptParser().parse(source);
             try {
-                program.verify();
+                CatScriptProgram program = loadVerified(source);
                 ByteCodeGenerator byteCodeGenerator = new ByteCodeGenerator(program);
                 CatScriptProgram compiledProgram = byteCodeGenerator.compileToBytecode();
                 compiledProgram.execute();
@@ -105,4 +122,50 @@ class CatScriptServer {
         });
 
     }
+
+    private static CatScriptProgram loadVerified(String source) {
+        ProgramCache cache = programCache();
+        if (cache != null) {
+            return cache.load(source);
+        }
+        CatScriptProgram program = new CatScriptParser().parse(source);
+        program.verify();
+        return program;
+    }
+
+    private static synchronized ProgramCache programCache() {
+        if (programCache == null && !programCacheFailed) {
+            try {
+                programCache = new ProgramCache(ProgramCache.defaultDirectory());
+            } catch (RuntimeException e) {
+                programCacheFailed = true;
+                System.err.println("Scripts will not be cached: " + e.getMessage());
+            }
+        }
+        return programCache;
+    }
+
+    private static EditorState editorState(Request req) {
+        Session session = req.session(true);
+        synchronized (session.raw()) {
+            EditorState editor = session.attribute(EditorState.ATTRIBUTE);
+            if (editor == null) {
+                editor = new EditorState();
+                session.attribute(EditorState.ATTRIBUTE, editor);
+            }
+            return editor;
+        }
+    }
+
+    // What one editor sent last, kept in its session so that edits are only ever applied to the
+    // same editor's previous script.  A request takes the previous tokens or program out while it
+    // works on them, so two requests from one editor never start from the same ones; the second
+    // just starts from scratch.  The editor posts the whole script on every keystroke.
+    private static class EditorState {
+        static final String ATTRIBUTE = "catscript.editor";
+        // only the edit since the last request is re-tokenized
+        final AtomicReference<TokenList> tokens = new AtomicReference<>();
+        // only the statements an edit touched are parsed again
+        final AtomicReference<CatScriptProgram> program = new AtomicReference<>();
+    }
 }
\ No newline at end of file
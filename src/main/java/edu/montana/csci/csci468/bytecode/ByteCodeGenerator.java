@@ -106,12 +106,13 @@ public class ByteCodeGenerator {
         return currentMethod.nextLocalStorageSlot();
     }
 
-    public Integer createLocalStorageSlotFor(String name){
-        return currentMethod.createLocalStorageSlotFor(name);
+    public void reserveLocalStorageSlots(int count) {
+        currentMethod.reserveLocalStorageSlots(count);
     }
 
-    public Integer resolveLocalStorageSlotFor(String name) {
-        return currentMethod.resolveLocalStorageSlotFor(name);
+    // the JVM local holding a LOCAL variable's slot, local 0 is this
+    public static int localFor(int slot) {
+        return slot + 1;
     }
 
     public String getProgramInternalName() {
@@ -2,28 +2,20 @@ package edu.montana.csci.csci468.bytecode;
 
 import org.objectweb.asm.*;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class MethodGenerator implements AutoCloseable {
 
     private AtomicInteger localStorageSlot = new AtomicInteger();
-    Map<String, Integer> localStorageMap = new HashMap<>();
     private final MethodVisitor delegate;
 
     public Integer nextLocalStorageSlot() {
         return localStorageSlot.incrementAndGet();
     }
 
-    public Integer createLocalStorageSlotFor(String name){
-        int i = nextLocalStorageSlot();
-        localStorageMap.put(name, i);
-        return i;
-    }
-
-    public Integer resolveLocalStorageSlotFor(String name) {
-        return localStorageMap.get(name);
+    // keeps the first locals for variables, see ByteCodeGenerator.localFor
+    public void reserveLocalStorageSlots(int count) {
+        localStorageSlot.set(Math.max(localStorageSlot.get(), count));
     }
 
     public MethodGenerator(MethodVisitor delgate) {
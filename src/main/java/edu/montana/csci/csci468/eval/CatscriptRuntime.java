@@ -1,46 +1,48 @@
 package edu.montana.csci.csci468.eval;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Map;
+import edu.montana.csci.csci468.parser.SymbolTable;
 
-// TODO - implement proper scoping
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+// Variable values, by the addresses validation gave them: GLOBAL slots in one array for the
+// whole run, LOCAL slots in the frame of the innermost running function, or of the program
+// outside any function
 public class CatscriptRuntime {
-    LinkedList<Map<String, Object>> scopes = new LinkedList<>();
 
-    public CatscriptRuntime(){
-        HashMap<String, Object> globalScope = new HashMap<>();
-        scopes.push(globalScope);
-    }
+    private Object[] globals = new Object[16];
+    private Object[] frame = new Object[16];
+    private final ArrayDeque<Object[]> outerFrames = new ArrayDeque<>();
 
-    public Object getValue(String name) {
-        Iterator<Map<String, Object>> mapIterator = scopes.descendingIterator();
-        while (mapIterator.hasNext()) {
-            Map<String, Object> scope = mapIterator.next();
-            if (scope.containsKey(name)) {
-                return scope.get(name);
-            }
+    public Object getValue(int depth, int slot) {
+        if (depth == SymbolTable.GLOBAL) {
+            return slot < globals.length ? globals[slot] : null;
+        } else {
+            return slot < frame.length ? frame[slot] : null;
         }
-        return null;
     }
 
-    public void setValue(String variableName, Object val) {
-        for (Map<String, Object> scope : scopes) {
-            if (scope.containsKey(variableName)) {
-                scope.put(variableName, val);
-                return;
+    public void setValue(int depth, int slot, Object val) {
+        if (depth == SymbolTable.GLOBAL) {
+            if (slot >= globals.length) {
+                globals = Arrays.copyOf(globals, Math.max(slot + 1, globals.length * 2));
+            }
+            globals[slot] = val;
+        } else {
+            if (slot >= frame.length) {
+                frame = Arrays.copyOf(frame, Math.max(slot + 1, frame.length * 2));
             }
+            frame[slot] = val;
         }
-        scopes.peekLast().put(variableName, val);
     }
 
-    public void pushScope() {
-        scopes.push(new HashMap<>());
+    public void pushFrame(int size) {
+        outerFrames.push(frame);
+        frame = new Object[size];
     }
 
-    public void popScope() {
-        scopes.pop();
+    public void popFrame() {
+        frame = outerFrames.pop();
     }
 
 }
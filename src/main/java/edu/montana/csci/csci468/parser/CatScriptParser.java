@@ -10,44 +10,249 @@ import edu.montana.csci.csci468.tokenizer.TokenType;
 
 import javax.swing.plaf.nimbus.State;
 import java.awt.*;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.lang.module.ModuleDescriptor;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static edu.montana.csci.csci468.tokenizer.TokenType.*;
 
 public class CatScriptParser {
 
+    // token classes, see TokenList.match(long)
+    private static final long UNARY_OPERATORS = TokenType.mask(MINUS, NOT);
+    private static final long EXPRESSION_STARTS =
+            TokenType.mask(IDENTIFIER, STRING, INTEGER, TRUE, FALSE, NULL, LEFT_BRACKET, LEFT_PAREN, MINUS, NOT);
+    // where panic mode recovery stops skipping tokens: keywords that start a statement, and
+    // braces ending a block.  Identifiers followed by '=' or '(' start statements as well, but
+    // only statements are skipped up to them.
+    private static final long SYNCHRONIZING =
+            TokenType.mask(PRINT, VAR, IF, ELSE, FOR, FUNCTION, RETURN, RIGHT_BRACE);
+
+    // binding powers of the binary operators, indexed by token type ordinal, higher binds
+    // tighter and 0 is not a binary operator.  All of them are left associative.
+    private static final int EQUALITY = 1;
+    private static final int COMPARISON = 2;
+    private static final int ADDITIVE = 3;
+    private static final int FACTOR = 4;
+    private static final int[] BINDING_POWER = new int[TokenType.values().length];
+    static {
+        BINDING_POWER[EQUAL_EQUAL.ordinal()] = EQUALITY;
+        BINDING_POWER[BANG_EQUAL.ordinal()] = EQUALITY;
+        BINDING_POWER[LESS.ordinal()] = COMPARISON;
+        BINDING_POWER[LESS_EQUAL.ordinal()] = COMPARISON;
+        BINDING_POWER[GREATER.ordinal()] = COMPARISON;
+        BINDING_POWER[GREATER_EQUAL.ordinal()] = COMPARISON;
+        BINDING_POWER[PLUS.ordinal()] = ADDITIVE;
+        BINDING_POWER[MINUS.ordinal()] = ADDITIVE;
+        BINDING_POWER[SLASH.ordinal()] = FACTOR;
+        BINDING_POWER[STAR.ordinal()] = FACTOR;
+    }
+
+    // how deeply blocks, and separately expressions, may nest before the parser reports
+    // NESTING_TOO_DEEP.  Block parsing, validation, evaluation and compiling walk the tree
+    // recursively, so this is what keeps them off the end of the Java stack.  MAX_NESTING_DEPTH
+    // is the most that is allowed: blocks nested that deep around an expression nested that deep
+    // go through all of them on a 1 MB thread stack, the JVM default, even interpreted.
+    public static final int MAX_NESTING_DEPTH = 1000;
+    public static final int DEFAULT_MAX_NESTING_DEPTH = MAX_NESTING_DEPTH;
+    // how many syntax errors are reported before the parser skips the rest of the source with a
+    // TOO_MANY_ERRORS error on the program
+    public static final int DEFAULT_MAX_ERRORS = 100;
+
     private TokenList tokens;
     private FunctionDefinitionStatement currentFunctionDefinition;
+    private int maxNestingDepth = DEFAULT_MAX_NESTING_DEPTH;
+    private int blockDepth = 0;
+    private int maxErrors = DEFAULT_MAX_ERRORS;
+    private int errorCount = 0;
+    private Token stoppedAt;
+    private boolean lazyFunctionBodies = false;
+    private ParallelFunctionParser parallelFunctions;
+    private ReusedStatements reusedStatements;
+
+    // limited to MAX_NESTING_DEPTH
+    public void setMaxNestingDepth(int maxNestingDepth) {
+        this.maxNestingDepth = Math.min(maxNestingDepth, MAX_NESTING_DEPTH);
+    }
+
+    public void setMaxErrors(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    // When set, the bodies of top level functions are only scanned for their closing brace, and
+    // are parsed and validated when a call to them is first validated, or when they are first
+    // run.  Errors in the bodies of functions that are never called are not reported.
+    public void setLazyFunctionBodies(boolean lazyFunctionBodies) {
+        this.lazyFunctionBodies = lazyFunctionBodies;
+    }
 
     public CatScriptProgram parse(String source) {
         tokens = new CatScriptTokenizer(source).getTokens();
+        CatScriptProgram program = parseProgram();
+        program.setTokens(tokens);
+        return program;
+    }
+
+    // Parses an edit of a previous program's source: only the edit is re-tokenized, and the top
+    // level statements whose tokens it didn't touch are taken from the previous program instead
+    // of being parsed again.  Their tokens are moved to the new source, so the previous program
+    // must not be used afterwards.  Statements with errors are always parsed again, as are all of
+    // them when either version of the source is a single expression.
+    public CatScriptProgram reparse(CatScriptProgram previous, int offset, int removedLength, String inserted) {
+        TokenList oldTokens = previous.getTokens();
+        if (oldTokens == null) {
+            throw new IllegalArgumentException("Cannot reparse a streamed program");
+        }
+        tokens = new CatScriptTokenizer(oldTokens, offset, removedLength, inserted).getTokens();
+        if (!previous.isExpression()) {
+            reusedStatements = new ReusedStatements(previous, tokens, offset, removedLength, inserted.length());
+        }
+        try {
+            CatScriptProgram program = parseProgram();
+            program.setTokens(tokens);
+            return program;
+        } finally {
+            reusedStatements = null;
+        }
+    }
+
+    // Reparses against a new version of the previous program's source, treating everything
+    // between their common prefix and suffix as the edit
+    public CatScriptProgram reparse(CatScriptProgram previous, String source) {
+        String oldSource = previous.getTokens() == null ? null : previous.getTokens().getSource();
+        if (oldSource == null) {
+            return parse(source);
+        }
+        int prefix = CatScriptTokenizer.commonPrefix(oldSource, source);
+        int suffix = CatScriptTokenizer.commonSuffix(oldSource, source, prefix);
+        return reparse(previous, prefix, oldSource.length() - prefix - suffix,
+                source.substring(prefix, source.length() - suffix));
+    }
+
+    // Parses a program as it is read, tokens are pulled from the reader on demand and released
+    // after each top level statement
+    public CatScriptProgram parse(Reader source) {
+        tokens = new CatScriptTokenizer(source).getTokens();
+        return parseProgram();
+    }
+
+    // Parses UTF-8 bytes as they are read, without decoding the whole source first
+    public CatScriptProgram parse(ByteBuffer source) {
+        tokens = new CatScriptTokenizer(source).getTokens();
+        return parseProgram();
+    }
+
+    // Tokenizes and parses on the pool, top level functions are parsed alongside the rest of
+    // the program
+    public CatScriptProgram parseInParallel(String source, ForkJoinPool pool) {
+        tokens = CatScriptTokenizer.tokenizeInParallel(source, pool).getTokens();
+        parallelFunctions = ParallelFunctionParser.start(tokens, pool, maxNestingDepth);
+        try {
+            CatScriptProgram program = parseProgram();
+            program.setTokens(tokens);
+            return program;
+        } finally {
+            parallelFunctions = null;
+        }
+    }
+
+    public CatScriptProgram parseInParallel(String source) {
+        return parseInParallel(source, ForkJoinPool.commonPool());
+    }
 
-        // first parse an expression
+    // parses a single function definition, for ParallelFunctionParser
+    Statement parseFunctionDefinition(TokenList range) {
+        tokens = range;
+        return parseFunctionDefinitionStatement();
+    }
+
+    private CatScriptProgram parseProgram() {
+        errorCount = 0;
+        stoppedAt = null;
         CatScriptProgram program = new CatScriptProgram();
         program.setStart(tokens.getCurrentToken());
-        Expression expression = parseExpression();
-        if (tokens.hasMoreTokens()) {
-            tokens.reset();
-            while (tokens.hasMoreTokens()) {
-                program.addStatement(parseProgramStatement());
-            }
+        if (startsProgram()) {
+            parseProgramStatements(program);
         } else {
-            program.setExpression(expression);
+            // otherwise parse an expression.  If that isn't the whole source, a call is the
+            // program's first statement and the rest follows it, anything else starts over.
+            Expression expression = parseSourceExpression();
+            if (tokens.hasMoreTokens() && expression instanceof FunctionCallExpression && errorCount == 0) {
+                FunctionCallStatement statement = new FunctionCallStatement((FunctionCallExpression) expression);
+                statement.setStart(expression.getStart());
+                program.addStatement(statement, tokens.getCurrentIndex());
+                tokens.discardConsumed();
+                parseProgramStatements(program);
+            } else if (tokens.hasMoreTokens()) {
+                tokens.reset();
+                errorCount = 0;
+                stoppedAt = null;
+                parseProgramStatements(program);
+            } else {
+                program.setExpression(expression);
+            }
         }
-
         program.setEnd(tokens.getCurrentToken());
+        if (tooManyErrors()) {
+            program.addError(ErrorType.TOO_MANY_ERRORS, stoppedAt);
+        }
         return program;
     }
 
+    private void parseProgramStatements(CatScriptProgram program) {
+        while (tokens.hasMoreTokens()) {
+            if (tooManyErrors()) {
+                while (tokens.hasMoreTokens()) {
+                    tokens.consumeToken();
+                    tokens.discardConsumed();
+                }
+                return;
+            }
+            Statement statement = null;
+            if (parallelFunctions != null) {
+                statement = parallelFunctions.take(tokens);
+            } else if (reusedStatements != null) {
+                statement = reusedStatements.take(tokens);
+            }
+            if (statement == null) {
+                statement = parseProgramStatement();
+            }
+            program.addStatement(statement, tokens.getCurrentIndex());
+            tokens.discardConsumed();
+        }
+    }
+
+    // True when the first two tokens show the source can't be parsed as a single expression:
+    // it starts with something that isn't an expression, or with an identifier that isn't
+    // followed by a call or an operator.  Only sources that start like an expression are
+    // parsed as one first.
+    private boolean startsProgram() {
+        TokenType first = tokens.typeAt(0);
+        if (first == EOF || tokens.typeAt(1) == EOF) {
+            return false;
+        }
+        TokenType second = tokens.typeAt(1);
+        if (first == IDENTIFIER) {
+            return second != LEFT_PAREN && BINDING_POWER[second.ordinal()] == 0;
+        } else {
+            return !isIn(first, EXPRESSION_STARTS);
+        }
+    }
+
+    private static boolean isIn(TokenType type, long tokenClass) {
+        return (tokenClass & (1L << type.ordinal())) != 0;
+    }
+
     public CatScriptProgram parseAsExpression(String source) {
         tokens = new CatScriptTokenizer(source).getTokens();
         CatScriptProgram program = new CatScriptProgram();
         program.setStart(tokens.getCurrentToken());
-        Expression expression = parseExpression();
+        Expression expression = parseSourceExpression();
         program.setExpression(expression);
         program.setEnd(tokens.getCurrentToken());
         return program;
@@ -80,14 +285,39 @@ public class CatScriptParser {
             Token ident = tokens.consumeToken();
             if (tokens.match(EQUAL)) {
                 return parseAssignmentStatement(ident); //assignment
-            } else {
+            } else if (tokens.match(LEFT_PAREN)) {
                 return parseFunctionCallStatement(ident); //function call
+            } else {
+                return parseSyntaxError(ident);
             }
-        }
-        if (currentFunctionDefinition != null) {
+        } else if (tokens.match(RETURN) && currentFunctionDefinition != null) {
             return parseReturnStatement();
         }
-        return new SyntaxErrorStatement(tokens.consumeToken());
+        return parseSyntaxError(tokens.consumeToken());
+    }
+
+    // Panic mode: one error covers the unexpected token and everything after it up to where a
+    // statement could start, rather than an error for each token
+    private Statement parseSyntaxError(Token start) {
+        SyntaxErrorStatement syntaxErrorStatement = new SyntaxErrorStatement(start);
+        countError(start);
+        while (!tokens.match(EOF) && !atStatement()) {
+            syntaxErrorStatement.setEnd(tokens.consumeToken());
+            tokens.discardConsumed();
+        }
+        return syntaxErrorStatement;
+    }
+
+    private boolean atSynchronizingToken() {
+        return tokens.match(SYNCHRONIZING) && !sourceExpression;
+    }
+
+    private boolean atStatement() {
+        if (tokens.match(IDENTIFIER)) {
+            TokenType next = tokens.typeAt(tokens.getCurrentIndex() + 1);
+            return next == EQUAL || next == LEFT_PAREN;
+        }
+        return tokens.match(SYNCHRONIZING);
     }
 
 
@@ -113,7 +343,11 @@ public class CatScriptParser {
         Token variableName = require(IDENTIFIER, variableStatement);
         if(tokens.matchAndConsume(COLON)) {
             TypeLiteral explicitType = parseTypeExpression();
-            variableStatement.setExplicitType(explicitType.getType());
+            if (explicitType == null) {
+                reportError(variableStatement, ErrorType.BAD_TYPE_NAME, tokens.lastToken());
+            } else {
+                variableStatement.setExplicitType(explicitType.getType());
+            }
             if(tokens.match(GREATER)) {
                 tokens.matchAndConsume(GREATER);
             }
@@ -128,28 +362,30 @@ public class CatScriptParser {
 
     private Statement parseIfStatement() {
         IfStatement ifStatement = new IfStatement();
-        LinkedList<Statement> trueStatements = new LinkedList<Statement>();
-        LinkedList<Statement> elseStatements = new LinkedList<Statement>();
+        List<Statement> trueStatements = new ArrayList<>();
+        List<Statement> elseStatements = new ArrayList<>();
         ifStatement.setStart(tokens.consumeToken());
         require(LEFT_PAREN, ifStatement);
         Expression condition = parseExpression();
         require(RIGHT_PAREN, ifStatement);
         require(LEFT_BRACE, ifStatement);
-        while(!tokens.match(RIGHT_BRACE) && !tokens.match(EOF)) {
-            Statement statements = parseProgramStatement();
-            trueStatements.add(statements);
-        }
+        parseBlock(trueStatements, ifStatement);
         require(RIGHT_BRACE, ifStatement);
         if (tokens.matchAndConsume(ELSE)) {
             if(tokens.match(LEFT_BRACE)) {
                 require(LEFT_BRACE, ifStatement);
-                while(!tokens.match(RIGHT_BRACE) && !tokens.match(EOF)) {
-                    Statement statements = parseProgramStatement();
-                    elseStatements.add(statements);
-                }
+                parseBlock(elseStatements, ifStatement);
                 require(RIGHT_BRACE, ifStatement);
-            } else { // else if
-                elseStatements.add(parseIfStatement());
+            } else if (blockDepth >= maxNestingDepth) { // else if, which nests like a block
+                reportError(ifStatement, ErrorType.NESTING_TOO_DEEP, tokens.getCurrentToken());
+                skipElseIfs();
+            } else {
+                blockDepth++;
+                try {
+                    elseStatements.add(parseIfStatement());
+                } finally {
+                    blockDepth--;
+                }
             }
         }
 
@@ -168,10 +404,8 @@ public class CatScriptParser {
         Expression condition = parseExpression();
         require(RIGHT_PAREN, forStatement);
         require(LEFT_BRACE, forStatement);
-        List<Statement> body = new LinkedList<>();
-        while (!tokens.match(RIGHT_BRACE) && !tokens.match(EOF)) {
-            body.add(parseProgramStatement());
-        }
+        List<Statement> body = new ArrayList<>();
+        parseBlock(body, forStatement);
         require(RIGHT_BRACE, forStatement);
         forStatement.setVariableName(loopIdentifier.getStringValue());
         forStatement.setStart(start);
@@ -198,7 +432,15 @@ public class CatScriptParser {
         require(LEFT_PAREN, functionDefinitionStatement);
 
         while (!tokens.match(RIGHT_PAREN) && !tokens.match(EOF)) {
-            Token paramIdentifier = require(IDENTIFIER, functionDefinitionStatement);
+            if (!tokens.match(IDENTIFIER)) {
+                // skip the rest of a broken parameter list
+                reportError(functionDefinitionStatement, ErrorType.UNEXPECTED_TOKEN, tokens.getCurrentToken());
+                while (!tokens.match(RIGHT_PAREN) && !tokens.match(LEFT_BRACE) && !tokens.match(EOF) && !tokens.match(SYNCHRONIZING)) {
+                    tokens.consumeToken();
+                }
+                break;
+            }
+            Token paramIdentifier = tokens.consumeToken();
             if(tokens.matchAndConsume(COLON)) {
                 functionDefinitionStatement.addParameter(paramIdentifier.getStringValue(), parseTypeExpression());
             } else {
@@ -218,16 +460,27 @@ public class CatScriptParser {
             require(COLON, functionDefinitionStatement);
             returnType = parseTypeExpression();
         }
+        functionDefinitionStatement.setType(returnType);
+        boolean hasBody = tokens.match(LEFT_BRACE);
         require(LEFT_BRACE, functionDefinitionStatement);
 
-        List<Statement> body = new LinkedList<>();
-        currentFunctionDefinition = functionDefinitionStatement;
-        try {
-            while (!tokens.match(RIGHT_BRACE) && !tokens.match(EOF)) {
-                body.add(parseProgramStatement());
+        int bodyEnd = hasBody && lazyFunctionBodies && blockDepth == 0 ? closingBrace() : -1;
+        if (bodyEnd >= 0) {
+            TokenList bodyTokens = tokens.range(tokens.getCurrentIndex(), bodyEnd);
+            int maxNestingDepth = this.maxNestingDepth;
+            int maxErrors = this.maxErrors;
+            functionDefinitionStatement.setBody(() ->
+                    parseDeferredBody(bodyTokens, functionDefinitionStatement, maxNestingDepth, maxErrors));
+            tokens.setCurrentIndex(bodyEnd);
+        } else {
+            List<Statement> body = new ArrayList<>();
+            currentFunctionDefinition = functionDefinitionStatement;
+            try {
+                parseBlock(body, functionDefinitionStatement);
+            } finally {
+                currentFunctionDefinition = null;
             }
-        } finally {
-            currentFunctionDefinition = null;
+            functionDefinitionStatement.setBody(body);
         }
         /*while (!tokens.match(RIGHT_BRACE) && !tokens.match(EOF)) {
             if (tokens.match(RETURN)) {
@@ -237,32 +490,59 @@ public class CatScriptParser {
             }
         }*/
         require(RIGHT_BRACE, functionDefinitionStatement);
-        functionDefinitionStatement.setType(returnType);
-        functionDefinitionStatement.setBody(body);
         functionDefinitionStatement.setName(functionName.getStringValue());
         return functionDefinitionStatement;
     }
 
-    private Statement parseFunctionCallStatement(Token functionIdentifier) {
-        Boolean flag = false;
-        if(!tokens.match(LEFT_PAREN)) {
-            flag = true;
+    // the index of the brace closing the block the current token is in, or -1 if it isn't closed
+    private int closingBrace() {
+        int depth = 0;
+        TokenType type;
+        for (int i = tokens.getCurrentIndex(); (type = tokens.typeAt(i)) != EOF; i++) {
+            if (type == LEFT_BRACE) {
+                depth++;
+            } else if (type == RIGHT_BRACE && depth-- == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Parses a body deferred by setLazyFunctionBodies from the tokens between its braces.  A
+    // brace that ends the body early is an error here, where it would have ended the function.
+    private static List<Statement> parseDeferredBody(TokenList bodyTokens, FunctionDefinitionStatement function,
+                                                     int maxNestingDepth, int maxErrors) {
+        CatScriptParser parser = new CatScriptParser();
+        parser.setMaxNestingDepth(maxNestingDepth);
+        parser.setMaxErrors(maxErrors);
+        parser.tokens = bodyTokens;
+        parser.currentFunctionDefinition = function;
+        List<Statement> body = new ArrayList<>();
+        parser.parseBlock(body, function);
+        while (bodyTokens.match(RIGHT_BRACE) && !parser.tooManyErrors()) {
+            parser.reportError(function, ErrorType.UNEXPECTED_TOKEN, bodyTokens.consumeToken());
+            parser.parseBlock(body, function);
         }
-        Token leftParen = tokens.consumeToken(); //paren
+        if (parser.tooManyErrors()) {
+            function.addError(ErrorType.TOO_MANY_ERRORS, parser.stoppedAt);
+        }
+        return body;
+    }
+
+    private Statement parseFunctionCallStatement(Token functionIdentifier) {
+        tokens.consumeToken(); //paren
 
         List<Expression> args = new ArrayList<>();
-        while(!tokens.match(RIGHT_PAREN) && !tokens.match(EOF)){
+        while(!tokens.match(RIGHT_PAREN) && !tokens.match(EOF) && !atSynchronizingToken() && !tooManyErrors()){
             Expression elem = parseExpression();
             args.add(elem);
             if(!tokens.match(RIGHT_PAREN)) {
-                tokens.consumeToken(); // comma
+                tokens.matchAndConsume(COMMA);
             }
         }
         FunctionCallExpression functionCallExpression = new FunctionCallExpression(functionIdentifier.getStringValue(), args);
-        if(flag == true) {
-            functionCallExpression.addError(ErrorType.UNEXPECTED_TOKEN); // missing left paren
-        }
-        require(RIGHT_PAREN, functionCallExpression, ErrorType.UNTERMINATED_ARG_LIST);
+        functionCallExpression.setStart(functionIdentifier);
+        functionCallExpression.setEnd(require(RIGHT_PAREN, functionCallExpression, ErrorType.UNTERMINATED_ARG_LIST));
 
         FunctionCallStatement funcStmt = new FunctionCallStatement(functionCallExpression);
         funcStmt.setStart(functionIdentifier);
@@ -284,148 +564,324 @@ public class CatScriptParser {
     }
 
 
+    // Parses statements up to the closing brace of a block, or skips the block with an error
+    // on its owner if it is nested too deeply
+    private void parseBlock(List<Statement> body, ParseElement owner) {
+        if (blockDepth >= maxNestingDepth) {
+            reportError(owner, ErrorType.NESTING_TOO_DEEP, tokens.getCurrentToken());
+            skipBlock();
+            return;
+        }
+        blockDepth++;
+        try {
+            while (!tokens.match(RIGHT_BRACE) && !tokens.match(EOF) && !tooManyErrors()) {
+                body.add(parseProgramStatement());
+            }
+        } finally {
+            blockDepth--;
+        }
+    }
+
+    // skips to the brace closing the current block, leaving it to be consumed
+    private void skipBlock() {
+        int depth = 0;
+        while (!tokens.match(EOF)) {
+            if (tokens.match(LEFT_BRACE)) {
+                depth++;
+            } else if (tokens.match(RIGHT_BRACE)) {
+                if (depth == 0) {
+                    return;
+                }
+                depth--;
+            }
+            tokens.consumeToken();
+        }
+    }
+
+    // skips a chain of else ifs, with their blocks
+    private void skipElseIfs() {
+        do {
+            while (!tokens.match(LEFT_BRACE) && !tokens.match(EOF)) {
+                tokens.consumeToken();
+            }
+            if (!tokens.matchAndConsume(LEFT_BRACE)) {
+                return;
+            }
+            skipBlock();
+            tokens.matchAndConsume(RIGHT_BRACE);
+        } while (tokens.matchAndConsume(ELSE));
+    }
+
     //============================================================
     //  Expressions
     //============================================================
 
+    // Expressions are parsed with explicit stacks rather than by recursive descent, so how deeply
+    // they nest is limited by maxNestingDepth rather than by the Java stack.  Finished operands
+    // wait on one stack with the heights of their trees, and on the other wait the operators
+    // still missing an operand and the parenthesized expressions, list literals and calls still
+    // being read.  Binary operators are reduced by the same binding powers as precedence
+    // climbing would use.  The stacks are reused, expressions never contain statements so
+    // parseExpression is never reentered.
+    private enum FrameKind { UNARY, BINARY, PAREN, LIST, CALL }
+
+    private static final class Frame {
+        final FrameKind kind;
+        // the operator, the opening paren or bracket, or the name of the called function
+        final Token token;
+        final int power;
+        List<Expression> elements;
+        Expression tallest;
+        int height;
+
+        Frame(FrameKind kind, Token token, int power) {
+            this.kind = kind;
+            this.token = token;
+            this.power = power;
+        }
+    }
+
+    private final List<Frame> frames = new ArrayList<>();
+    private Expression[] operands = new Expression[16];
+    private int[] heights = new int[16];
+    private int operandCount = 0;
+    private boolean sourceExpression = false;
+
+    // An expression that is the whole source has no statements to recover at, so tokens that
+    // statements synchronize on are just unexpected in it
+    private Expression parseSourceExpression() {
+        sourceExpression = true;
+        try {
+            return parseExpression();
+        } finally {
+            sourceExpression = false;
+        }
+    }
+
     private Expression parseExpression() {
-        return parseEqualityExpression();
-    }
-
-    private Expression parseEqualityExpression() {
-        Expression expression = parseComparisonExpression();
-        while (tokens.match(EQUAL_EQUAL, BANG_EQUAL)) {
-            Token operator = tokens.consumeToken();
-            final Expression rightHandSide = parseComparisonExpression();
-            EqualityExpression equalityExpression = new EqualityExpression(operator, expression, rightHandSide);
-            equalityExpression.setStart(expression.getStart());
-            equalityExpression.setEnd(rightHandSide.getEnd());
-            expression = equalityExpression;
-        }
-        return expression;
-    }
-
-    private Expression parseComparisonExpression() {
-        Expression expression = parseAdditiveExpression();
-        while (tokens.match(LESS, LESS_EQUAL, GREATER, GREATER_EQUAL)) {
-            Token operator = tokens.consumeToken();
-            final Expression rightHandSide = parseAdditiveExpression();
-            ComparisonExpression comparisonExpression = new ComparisonExpression(operator, expression, rightHandSide);
-            comparisonExpression.setStart(expression.getStart());
-            comparisonExpression.setEnd(rightHandSide.getEnd());
-            expression = comparisonExpression;
-        }
-        return expression;
-    }
-
-    private Expression parseAdditiveExpression() {
-        Expression expression = parseFactorExpression();
-        while (tokens.match(PLUS, MINUS)) {
-            Token operator = tokens.consumeToken();
-            final Expression rightHandSide = parseFactorExpression();
-            AdditiveExpression additiveExpression = new AdditiveExpression(operator, expression, rightHandSide);
-            additiveExpression.setStart(expression.getStart());
-            additiveExpression.setEnd(rightHandSide.getEnd());
-            expression = additiveExpression;
-        }
-        return expression;
-    }
-
-    private Expression parseFactorExpression() {
-        Expression expression = parseUnaryExpression();
-        while (tokens.match(SLASH, STAR)) {
-            Token operator = tokens.consumeToken();
-            final Expression rightHandSide = parseUnaryExpression();
-            FactorExpression factorExpression = new FactorExpression(operator, expression, rightHandSide);
-            factorExpression.setStart(expression.getStart());
-            factorExpression.setEnd(rightHandSide.getEnd());
-            expression = factorExpression;
-        }
-        return expression;
-    }
-
-    private Expression parseUnaryExpression() {
-        if (tokens.match(MINUS, NOT)) {
-            Token token = tokens.consumeToken();
-            Expression rhs = parseUnaryExpression();
-            UnaryExpression unaryExpression = new UnaryExpression(token, rhs);
-            unaryExpression.setStart(token);
-            unaryExpression.setEnd(rhs.getEnd());
-            return unaryExpression;
-        } else {
-            return parsePrimaryExpression();
+        frames.clear();
+        operandCount = 0;
+        while (true) {
+            while (tokens.match(UNARY_OPERATORS)) {
+                frames.add(new Frame(FrameKind.UNARY, tokens.consumeToken(), 0));
+            }
+            if (!parseOperand()) {
+                continue;
+            }
+            // operators follow, until one of them needs another operand
+            while (true) {
+                int power = BINDING_POWER[tokens.getCurrentType().ordinal()];
+                if (power > 0) {
+                    reduceBinary(power);
+                    frames.add(new Frame(FrameKind.BINARY, tokens.consumeToken(), power));
+                    break;
+                }
+                reduceBinary(EQUALITY);
+                if (frames.isEmpty()) {
+                    Expression expression = operands[0];
+                    operands[0] = null;
+                    operandCount = 0;
+                    return expression;
+                }
+                if (!closeGroup()) {
+                    break;
+                }
+            }
         }
     }
 
-    private Expression parsePrimaryExpression() {
+    // Pushes the next operand, or opens a group and returns false if its first element is
+    // still to be parsed
+    private boolean parseOperand() {
         if (tokens.match(IDENTIFIER)) {
             Token identifierToken = tokens.consumeToken();
-            if(tokens.match(LEFT_PAREN)){ //FUNCTION CALL
+            if (tokens.match(LEFT_PAREN)) { //FUNCTION CALL
                 tokens.consumeToken();
-                List<Expression> args = new ArrayList<>();
-                while(!tokens.match(RIGHT_PAREN) && !tokens.match(EOF)){
-                    Expression elem = parseExpression();
-                    args.add(elem);
-                    if(tokens.match(COMMA)) {
-                        tokens.consumeToken(); // comma
-                    }
-                }
-                FunctionCallExpression functionCallExpression = new FunctionCallExpression(identifierToken.getStringValue(), args);
-                require(RIGHT_PAREN, functionCallExpression, ErrorType.UNTERMINATED_ARG_LIST);
-                return functionCallExpression;
-            }else {
+                return openGroup(new Frame(FrameKind.CALL, identifierToken, 0), RIGHT_PAREN);
+            } else {
                 IdentifierExpression identifierExpression = new IdentifierExpression(identifierToken.getStringValue());
                 identifierExpression.setToken(identifierToken);
-                return identifierExpression;
+                completeOperand(identifierExpression, 1);
             }
         } else if (tokens.match(STRING)) {
             Token stringToken = tokens.consumeToken();
             StringLiteralExpression stringExpression = new StringLiteralExpression(stringToken.getStringValue());
             stringExpression.setToken(stringToken);
-            return stringExpression;
+            completeOperand(stringExpression, 1);
         } else if (tokens.match(INTEGER)) {
             Token integerToken = tokens.consumeToken();
             IntegerLiteralExpression integerExpression = new IntegerLiteralExpression(integerToken.getStringValue());
             integerExpression.setToken(integerToken);
-            return integerExpression;
+            completeOperand(integerExpression, 1);
         } else if (tokens.match(TRUE)) {
             Token booleanToken = tokens.consumeToken();
             BooleanLiteralExpression booleanExpression = new BooleanLiteralExpression(true);
             booleanExpression.setToken(booleanToken);
-            return booleanExpression;
+            completeOperand(booleanExpression, 1);
         } else if (tokens.match(FALSE)) {
             Token booleanToken = tokens.consumeToken();
             BooleanLiteralExpression booleanExpression = new BooleanLiteralExpression(false);
             booleanExpression.setToken(booleanToken);
-            return booleanExpression;
+            completeOperand(booleanExpression, 1);
         } else if (tokens.match(NULL)) {
             Token nullToken = tokens.consumeToken();
             NullLiteralExpression nullExpression = new NullLiteralExpression();
             nullExpression.setToken(nullToken);
-            return nullExpression;
-        } else if (tokens.match(LEFT_BRACKET)){ //LIST LITERAL
-            tokens.consumeToken();
-            List<Expression> list = new ArrayList<>();
-            while(!tokens.match(RIGHT_BRACKET) && !tokens.match(EOF)) {
-                Expression elem = parseExpression();
-                list.add(elem);
-                if (tokens.match(COMMA)){
-                    tokens.consumeToken();
-                }
+            completeOperand(nullExpression, 1);
+        } else if (tokens.match(LEFT_BRACKET)) { //LIST LITERAL
+            return openGroup(new Frame(FrameKind.LIST, tokens.consumeToken(), 0), RIGHT_BRACKET);
+        } else if (tokens.match(LEFT_PAREN)) {
+            frames.add(new Frame(FrameKind.PAREN, tokens.consumeToken(), 0));
+            return false;
+        } else if (tokens.match(EOF) || atSynchronizingToken()) {
+            // left for the statement parser to recover at, the expression ends here
+            countError(tokens.getCurrentToken());
+            completeOperand(new SyntaxErrorExpression(tokens.getCurrentToken()), 1);
+        } else {
+            countError(tokens.getCurrentToken());
+            completeOperand(new SyntaxErrorExpression(tokens.consumeToken()), 1);
+        }
+        return true;
+    }
+
+    private boolean openGroup(Frame group, TokenType closer) {
+        group.elements = new ArrayList<>();
+        frames.add(group);
+        if (tokens.match(closer) || tokens.match(EOF)) {
+            finishGroup(group);
+            return true;
+        }
+        return false;
+    }
+
+    // Reduces the binary operators waiting on the stack that bind at least as tightly as
+    // minimumPower, which leaves every level left associative
+    private void reduceBinary(int minimumPower) {
+        while (!frames.isEmpty()) {
+            Frame top = frames.get(frames.size() - 1);
+            if (top.kind != FrameKind.BINARY || top.power < minimumPower) {
+                return;
+            }
+            frames.remove(frames.size() - 1);
+            Expression rightHandSide = operands[--operandCount];
+            int rightHeight = heights[operandCount];
+            Expression leftHandSide = operands[--operandCount];
+            int leftHeight = heights[operandCount];
+            int height = Math.max(leftHeight, rightHeight) + 1;
+            if (height > maxNestingDepth) {
+                push(tooDeep(leftHeight >= rightHeight ? leftHandSide : rightHandSide, top.token), maxNestingDepth);
+            } else {
+                Expression binaryExpression = newBinaryExpression(top.power, top.token, leftHandSide, rightHandSide);
+                binaryExpression.setStart(leftHandSide.getStart());
+                binaryExpression.setEnd(rightHandSide.getEnd());
+                push(binaryExpression, height);
+            }
+        }
+    }
+
+    // Finishes the element on top of the operand stack as part of the innermost open group.
+    // Returns false when the group is a list or call with more elements to parse.
+    private boolean closeGroup() {
+        Frame group = frames.get(frames.size() - 1);
+        if (group.kind == FrameKind.PAREN) {
+            frames.remove(frames.size() - 1);
+            Expression rhs = operands[--operandCount];
+            int height = heights[operandCount] + 1;
+            Token rightParen = require(RIGHT_PAREN, rhs);
+            if (height > maxNestingDepth) {
+                completeOperand(tooDeep(rhs, group.token), maxNestingDepth);
+            } else {
+                ParenthesizedExpression parenthesizedExpression = new ParenthesizedExpression(rhs);
+                parenthesizedExpression.setStart(group.token);
+                parenthesizedExpression.setEnd(rightParen);
+                completeOperand(parenthesizedExpression, height);
+            }
+            return true;
+        }
+        Expression element = operands[--operandCount];
+        int height = heights[operandCount];
+        group.elements.add(element);
+        if (height > group.height) {
+            group.height = height;
+            group.tallest = element;
+        }
+        if (tokens.match(COMMA)) {
+            tokens.consumeToken(); // comma
+        }
+        TokenType closer = group.kind == FrameKind.LIST ? RIGHT_BRACKET : RIGHT_PAREN;
+        if (!tokens.match(closer) && !tokens.match(EOF) && !atSynchronizingToken() && !tooManyErrors()) {
+            return false;
+        }
+        finishGroup(group);
+        return true;
+    }
+
+    private void finishGroup(Frame group) {
+        frames.remove(frames.size() - 1);
+        int height = group.height + 1;
+        if (height > maxNestingDepth) {
+            Expression tooDeep = tooDeep(group.tallest, group.token);
+            require(group.kind == FrameKind.LIST ? RIGHT_BRACKET : RIGHT_PAREN, tooDeep);
+            completeOperand(tooDeep, maxNestingDepth);
+        } else if (group.kind == FrameKind.LIST) {
+            ListLiteralExpression listLiteralExpression = new ListLiteralExpression(group.elements);
+            listLiteralExpression.setStart(group.token);
+            listLiteralExpression.setEnd(require(RIGHT_BRACKET, listLiteralExpression, ErrorType.UNTERMINATED_LIST));
+            completeOperand(listLiteralExpression, height);
+        } else {
+            FunctionCallExpression functionCallExpression = new FunctionCallExpression(group.token.getStringValue(), group.elements);
+            functionCallExpression.setStart(group.token);
+            functionCallExpression.setEnd(require(RIGHT_PAREN, functionCallExpression, ErrorType.UNTERMINATED_ARG_LIST));
+            completeOperand(functionCallExpression, height);
+        }
+    }
+
+    // Pushes a finished operand, wrapped in any unary operators waiting for it
+    private void completeOperand(Expression expression, int height) {
+        while (!frames.isEmpty() && frames.get(frames.size() - 1).kind == FrameKind.UNARY) {
+            Token token = frames.remove(frames.size() - 1).token;
+            if (++height > maxNestingDepth) {
+                expression = tooDeep(expression, token);
+                height = maxNestingDepth;
+            } else {
+                UnaryExpression unaryExpression = new UnaryExpression(token, expression);
+                unaryExpression.setStart(token);
+                unaryExpression.setEnd(expression.getEnd());
+                expression = unaryExpression;
             }
-            ListLiteralExpression listLiteralExpression = new ListLiteralExpression(list);
-            require(RIGHT_BRACKET, listLiteralExpression, ErrorType.UNTERMINATED_LIST);
-            return listLiteralExpression;
-        } else if (tokens.match(LEFT_PAREN)){
-            Token leftParenToken = tokens.consumeToken();
-            Expression rhs = parseExpression();
-            ParenthesizedExpression parenthesizedExpression = new ParenthesizedExpression(rhs);
-            parenthesizedExpression.setStart(leftParenToken);
-            parenthesizedExpression.setEnd(require(RIGHT_PAREN, rhs));
-            return parenthesizedExpression;
-        }else {
-            SyntaxErrorExpression syntaxErrorExpression = new SyntaxErrorExpression(tokens.consumeToken());
-            return syntaxErrorExpression;
+        }
+        push(expression, height);
+    }
+
+    private void push(Expression expression, int height) {
+        if (operandCount == operands.length) {
+            operands = Arrays.copyOf(operands, operandCount * 2);
+            heights = Arrays.copyOf(heights, operandCount * 2);
+        }
+        operands[operandCount] = expression;
+        heights[operandCount++] = height;
+    }
+
+    // Stands in for an expression nested past maxNestingDepth, dropping its subexpressions.
+    // Everything enclosing it is too deep as well, so one error covers all of them.
+    private Expression tooDeep(Expression tallest, Token location) {
+        if (tallest instanceof SyntaxErrorExpression && tallest.hasError(ErrorType.NESTING_TOO_DEEP)) {
+            return tallest;
+        }
+        countError(location);
+        return new SyntaxErrorExpression(location, ErrorType.NESTING_TOO_DEEP);
+    }
+
+    private Expression newBinaryExpression(int power, Token operator, Expression leftHandSide, Expression rightHandSide) {
+        switch (power) {
+            case EQUALITY:
+                return new EqualityExpression(operator, leftHandSide, rightHandSide);
+            case COMPARISON:
+                return new ComparisonExpression(operator, leftHandSide, rightHandSide);
+            case ADDITIVE:
+                return new AdditiveExpression(operator, leftHandSide, rightHandSide);
+            default:
+                return new FactorExpression(operator, leftHandSide, rightHandSide);
         }
     }
 
@@ -496,8 +952,26 @@ public class CatScriptParser {
         if(tokens.match(type)){
             return tokens.consumeToken();
         } else {
-            elt.addError(msg, tokens.getCurrentToken());
+            reportError(elt, msg, tokens.getCurrentToken());
             return tokens.getCurrentToken();
         }
     }
+
+    // errors past maxErrors are dropped, the program reports TOO_MANY_ERRORS instead
+    private void reportError(ParseElement element, ErrorType errorType, Token location) {
+        if (!tooManyErrors()) {
+            element.addError(errorType, location);
+        }
+        countError(location);
+    }
+
+    private void countError(Token location) {
+        if (++errorCount == maxErrors) {
+            stoppedAt = location;
+        }
+    }
+
+    private boolean tooManyErrors() {
+        return errorCount >= maxErrors;
+    }
 }
@@ -1,28 +1,52 @@
 package edu.montana.csci.csci468.parser;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
+// Types are interned, there is one instance of each type, list types included, so types can be
+// compared with ==.  Each type is numbered as it is made, and keeps the set of type numbers it is
+// assignable from, filled in for every type that exists and extended as list types are made, so
+// isAssignableFrom is a bit test.
 public class CatscriptType {
 
-    public static final CatscriptType INT = new CatscriptType("int", Integer.class);
-    public static final CatscriptType STRING = new CatscriptType("string", String.class);
-    public static final CatscriptType BOOLEAN = new CatscriptType("bool", Boolean.class);
-    public static final CatscriptType OBJECT = new CatscriptType("object", Object.class);
-    public static final CatscriptType NULL = new CatscriptType("null", Object.class);
-    public static final CatscriptType VOID = new CatscriptType("void", Object.class);
+    // every type, by number, guarding the making of types
+    private static final List<CatscriptType> TYPES = new ArrayList<>();
+
+    public static final CatscriptType INT = number(new CatscriptType("int", Integer.class));
+    public static final CatscriptType STRING = number(new CatscriptType("string", String.class));
+    public static final CatscriptType BOOLEAN = number(new CatscriptType("bool", Boolean.class));
+    public static final CatscriptType OBJECT = number(new CatscriptType("object", Object.class));
+    public static final CatscriptType NULL = number(new CatscriptType("null", Object.class));
+    public static final CatscriptType VOID = number(new CatscriptType("void", Object.class));
+
+    // the rules refer to the constants, so their sets are filled in once all of them are set
+    static {
+        for (CatscriptType type : TYPES) {
+            addToAssignableSets(type);
+        }
+    }
 
     private final String name;
     private final Class javaClass;
+    private int id;
+    // a bit for the number of each type assignable to this one, replaced rather than changed
+    private volatile long[] assignableFrom = new long[1];
 
-    public CatscriptType(String name, Class javaClass) {
+    private CatscriptType(String name, Class javaClass) {
         this.name = name;
         this.javaClass = javaClass;
     }
 
-    public boolean isAssignableFrom(CatscriptType type) {
+    public final boolean isAssignableFrom(CatscriptType type) {
+        long[] bits = assignableFrom;
+        int word = type.id >>> 6;
+        return word < bits.length && (bits[word] & (1L << type.id)) != 0;
+    }
+
+    // the rule the assignable sets are filled in from
+    protected boolean computeAssignableFrom(CatscriptType type) {
         if (type == VOID) {
             return false;
         } else if (type == NULL) {
@@ -33,35 +57,60 @@ public class CatscriptType {
         return false;
     }
 
-    //memoized
-    static Map<CatscriptType, CatscriptType> CACHE = new HashMap<>();
-    public static CatscriptType getListType(CatscriptType type) {
-        CatscriptType potentialMatch = CACHE.get(type);
-        if (potentialMatch != null) {
-            return potentialMatch;
-        } else {
-            ListType listType = new ListType(type);
-            CACHE.put(type, listType);
-            return listType;
+    public int getId() {
+        return id;
+    }
+
+    private static CatscriptType number(CatscriptType type) {
+        synchronized (TYPES) {
+            type.id = TYPES.size();
+            TYPES.add(type);
         }
+        return type;
     }
 
-    @Override
-    public String toString() {
-        return name;
+    // adds a numbered type to its own and every other type's assignable set
+    private static void addToAssignableSets(CatscriptType type) {
+        synchronized (TYPES) {
+            for (CatscriptType other : TYPES) {
+                if (other.computeAssignableFrom(type)) {
+                    other.addAssignableFrom(type);
+                }
+                if (other != type && type.computeAssignableFrom(other)) {
+                    type.addAssignableFrom(other);
+                }
+            }
+        }
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        CatscriptType that = (CatscriptType) o;
-        return Objects.equals(name, that.name);
+    private void addAssignableFrom(CatscriptType type) {
+        int word = type.id >>> 6;
+        long[] bits = Arrays.copyOf(assignableFrom, Math.max(assignableFrom.length, word + 1));
+        bits[word] |= 1L << type.id;
+        assignableFrom = bits;
+    }
+
+    // list types by component type, made on first use.  Reading the table takes no lock, a list
+    // type is made and numbered under the types lock before any thread can read it.
+    private static final ConcurrentHashMap<CatscriptType, ListType> LIST_TYPES = new ConcurrentHashMap<>();
+    public static CatscriptType getListType(CatscriptType type) {
+        ListType listType = LIST_TYPES.get(type);
+        if (listType == null) {
+            synchronized (TYPES) {
+                listType = LIST_TYPES.get(type);
+                if (listType == null) {
+                    listType = (ListType) number(new ListType(type));
+                    addToAssignableSets(listType);
+                    LIST_TYPES.put(type, listType);
+                }
+            }
+        }
+        return listType;
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(name);
+    public String toString() {
+        return name;
     }
 
     public Class getJavaType() {
@@ -70,13 +119,13 @@ public class CatscriptType {
 
     public static class ListType extends CatscriptType {
         private final CatscriptType componentType;
-        public ListType(CatscriptType componentType) {
+        private ListType(CatscriptType componentType) {
             super("list<" + componentType.toString() + ">", List.class);
             this.componentType = componentType;
         }
 
         @Override
-        public boolean isAssignableFrom(CatscriptType type) {
+        protected boolean computeAssignableFrom(CatscriptType type) {
             if (type == NULL) {
                 return true;
             } else if (type instanceof ListType) {
@@ -89,11 +138,6 @@ public class CatscriptType {
         public CatscriptType getComponentType() {
             return componentType;
         }
-
-        @Override
-        public String toString() {
-            return super.toString() + "<" + componentType.toString() + ">";
-        }
     }
 
 }
@@ -9,7 +9,9 @@ public enum ErrorType {
     UNKNOWN_NAME("This symbol is not defined"),
     ARG_MISMATCH("Wrong number of arguments"),
     MISSING_RETURN_STATEMENT("Missing return statement in function"),
-    UNEXPECTED_TOKEN("Unexpected Token");
+    UNEXPECTED_TOKEN("Unexpected Token"),
+    NESTING_TOO_DEEP("Nested too deeply"),
+    TOO_MANY_ERRORS("Too many errors, the rest of the source was not parsed");
 
     private final String message;
 
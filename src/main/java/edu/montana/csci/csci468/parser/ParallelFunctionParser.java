@@ -0,0 +1,115 @@
+package edu.montana.csci.csci468.parser;
+
+import edu.montana.csci.csci468.parser.statements.Statement;
+import edu.montana.csci.csci468.tokenizer.TokenList;
+import edu.montana.csci.csci468.tokenizer.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static edu.montana.csci.csci468.tokenizer.TokenType.*;
+
+// Parses top level function definitions on a pool while the program around them is parsed.  A
+// pre-scan finds each top level function keyword and the brace closing its body, and each of
+// those token ranges is parsed by a parser of its own.  A parse is only used if the program's
+// parser reaches the function exactly where the scan found it and the function ended cleanly at
+// its last brace, any other function is parsed again in line, so the program is always the same
+// one a sequential parse would produce.
+class ParallelFunctionParser {
+
+    private final List<Integer> starts = new ArrayList<>();
+    private final List<Integer> ends = new ArrayList<>();
+    private final List<ForkJoinTask<Statement>> functions = new ArrayList<>();
+    private int next = 0;
+
+    private ParallelFunctionParser() {
+    }
+
+    // null when there aren't enough functions or threads to be worth it
+    static ParallelFunctionParser start(TokenList tokens, ForkJoinPool pool, int maxNestingDepth) {
+        if (pool.getParallelism() < 2) {
+            return null;
+        }
+        ParallelFunctionParser parser = new ParallelFunctionParser();
+        parser.findFunctions(tokens);
+        if (parser.starts.size() < 2) {
+            return null;
+        }
+        for (int i = 0; i < parser.starts.size(); i++) {
+            int start = parser.starts.get(i);
+            int end = parser.ends.get(i);
+            // the token list is complete, so reading it from other threads is safe
+            parser.functions.add(pool.submit(() -> parseFunction(tokens, start, end, maxNestingDepth)));
+        }
+        return parser;
+    }
+
+    private static Statement parseFunction(TokenList tokens, int start, int end, int maxNestingDepth) {
+        try {
+            TokenList range = tokens.range(start, end);
+            CatScriptParser parser = new CatScriptParser();
+            parser.setMaxNestingDepth(maxNestingDepth);
+            Statement function = parser.parseFunctionDefinition(range);
+            if (range.getCurrentIndex() == end && !function.hasErrors()) {
+                return function;
+            }
+        } catch (RuntimeException e) {
+            // left for the sequential parse to run into
+        }
+        return null;
+    }
+
+    // The function parsed for the range starting at the current token, with the tokens moved
+    // past it, or null if it has to be parsed in line
+    Statement take(TokenList tokens) {
+        int current = tokens.getCurrentIndex();
+        while (next < starts.size() && starts.get(next) < current) {
+            functions.get(next++).cancel(false);
+        }
+        if (next == starts.size() || starts.get(next) != current) {
+            return null;
+        }
+        Statement function = functions.get(next).join();
+        if (function != null) {
+            tokens.setCurrentIndex(ends.get(next));
+        }
+        next++;
+        return function;
+    }
+
+    private void findFunctions(TokenList tokens) {
+        int depth = 0;
+        TokenType type;
+        for (int i = 0; (type = tokens.typeAt(i)) != EOF; i++) {
+            if (type == FUNCTION && depth == 0) {
+                int end = bodyEnd(tokens, i);
+                if (end < 0) {
+                    return;
+                }
+                starts.add(i);
+                ends.add(end);
+                i = end - 1;
+            } else if (type == LEFT_BRACE) {
+                depth++;
+            } else if (type == RIGHT_BRACE && depth > 0) {
+                depth--;
+            }
+        }
+    }
+
+    // the index just past the brace closing the body of the function starting at start
+    private static int bodyEnd(TokenList tokens, int start) {
+        int depth = 0;
+        TokenType type;
+        for (int i = start; (type = tokens.typeAt(i)) != EOF; i++) {
+            if (type == LEFT_BRACE) {
+                depth++;
+            } else if (type == RIGHT_BRACE && depth > 0 && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
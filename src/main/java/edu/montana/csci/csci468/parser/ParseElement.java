@@ -5,12 +5,18 @@ import edu.montana.csci.csci468.eval.CatscriptRuntime;
 import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
 import edu.montana.csci.csci468.parser.statements.FunctionDefinitionStatement;
 import edu.montana.csci.csci468.tokenizer.Token;
+import edu.montana.csci.csci468.tokenizer.TokenList;
 import org.objectweb.asm.Opcodes;
 
 import java.awt.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 import static edu.montana.csci.csci468.bytecode.ByteCodeGenerator.internalNameFor;
 
@@ -19,14 +25,13 @@ public abstract class ParseElement {
     protected ParseElement parent;
     private Token start;
     private Token end;
-    private List<ParseElement> children;
+    // most elements have a couple of children and no errors, so children are kept in an array
+    // that grows as needed and the error list is only allocated for the first error
+    private static final ParseElement[] NO_CHILDREN = new ParseElement[0];
+    private ParseElement[] children = NO_CHILDREN;
+    private int childCount;
     private List<ParseError> errors;
 
-    public ParseElement() {
-        this.errors = new LinkedList<>();
-        this.children = new LinkedList<>();
-    }
-
     public CatScriptProgram getProgram() {
         if (this.getParent() instanceof CatScriptProgram) {
             return (CatScriptProgram) this.getParent();
@@ -61,11 +66,11 @@ public abstract class ParseElement {
     }
 
     public List<ParseError> getErrors() {
-        return errors;
+        return errors == null ? Collections.emptyList() : errors;
     }
 
     public boolean hasErrors() {
-        return !errors.isEmpty();
+        return errors != null;
     }
 
     public void addError(ErrorType errorType, Object... args) {
@@ -73,17 +78,60 @@ public abstract class ParseElement {
     }
 
     public void addError(ErrorType errorMessage, Token token, Object... args) {
+        if (errors == null) {
+            errors = new ArrayList<>(1);
+        }
         errors.add(new ParseError(token, errorMessage, args));
     }
 
     protected <T extends ParseElement> T addChild(T element) {
         element.parent = this;
-        children.add(element);
+        if (childCount == children.length) {
+            children = Arrays.copyOf(children, Math.max(2, childCount + (childCount >> 1)));
+        }
+        children[childCount++] = element;
         return element;
     }
 
+    // adds all of the elements as children, returning them as a fixed size list
+    protected <T extends ParseElement> List<T> addChildren(List<T> elements) {
+        if (elements.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (childCount + elements.size() > children.length) {
+            children = Arrays.copyOf(children, childCount + elements.size());
+        }
+        Object[] added = new Object[elements.size()];
+        int i = 0;
+        for (T element : elements) {
+            added[i++] = addChild(element);
+        }
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) (List<?>) Arrays.asList(added);
+        return Collections.unmodifiableList(list);
+    }
+
     public List<ParseElement> getChildren() {
-        return children;
+        return Collections.unmodifiableList(Arrays.asList(children).subList(0, childCount));
+    }
+
+    public int getChildCount() {
+        return childCount;
+    }
+
+    public ParseElement getChild(int index) {
+        return children[index];
+    }
+
+    // moves the tokens this element holds to the token list of an edited source, see
+    // CatScriptParser.reparse()
+    protected void moveTokens(TokenList tokens, int indexDelta) {
+        if (start != null) {
+            start.moveTo(tokens, indexDelta);
+        }
+        if (end != null) {
+            end.moveTo(tokens, indexDelta);
+        }
     }
 
     @Override
@@ -92,11 +140,12 @@ public abstract class ParseElement {
     }
 
     public boolean hasError(ErrorType errorMessage) {
-        return errors.stream().anyMatch(parseError -> Objects.equals(parseError.getErrorType(), errorMessage));
+        return hasErrors() && errors.stream().anyMatch(parseError -> Objects.equals(parseError.getErrorType(), errorMessage));
     }
 
     private void registerFunctions(SymbolTable symbolTable) {
-        for (ParseElement child : children) {
+        for (int i = 0; i < childCount; i++) {
+            ParseElement child = children[i];
             if (child instanceof FunctionDefinitionStatement) {
                 FunctionDefinitionStatement func = (FunctionDefinitionStatement) child;
                 if (symbolTable.hasSymbol(func.getName())) {
@@ -113,7 +162,23 @@ public abstract class ParseElement {
         SymbolTable symbolTable = new SymbolTable();
         registerFunctions(symbolTable);
         validate(symbolTable);
+        throwErrors();
+    }
+
+    // Validates on the pool where the element allows it, the errors are the same, and in the same
+    // order, as verify() would report
+    public final void verifyInParallel(ForkJoinPool pool) {
+        SymbolTable symbolTable = new SymbolTable();
+        registerFunctions(symbolTable);
+        validate(symbolTable, pool);
+        throwErrors();
+    }
 
+    public final void verifyInParallel() {
+        verifyInParallel(ForkJoinPool.commonPool());
+    }
+
+    private void throwErrors() {
         final LinkedList<ParseError> collector = new LinkedList<>();
         collectErrors(collector, this);
         if (collector.size() > 0) {
@@ -123,10 +188,23 @@ public abstract class ParseElement {
 
     public abstract void validate(SymbolTable symbolTable);
 
+    protected void validate(SymbolTable symbolTable, ForkJoinPool pool) {
+        validate(symbolTable);
+    }
+
+    // walks the tree with an explicit stack, in the same order as a recursive walk, so deep
+    // trees don't need a deep Java stack
     private void collectErrors(LinkedList<ParseError> collector, ParseElement parseElement){
-        collector.addAll(parseElement.getErrors());
-        for (ParseElement child : parseElement.getChildren()) {
-            collectErrors(collector, child);
+        ArrayDeque<ParseElement> pending = new ArrayDeque<>();
+        pending.push(parseElement);
+        while (!pending.isEmpty()) {
+            ParseElement element = pending.pop();
+            if (element.hasErrors()) {
+                collector.addAll(element.errors);
+            }
+            for (int i = element.childCount - 1; i >= 0; i--) {
+                pending.push(element.children[i]);
+            }
         }
     }
 
@@ -0,0 +1,198 @@
+package edu.montana.csci.csci468.parser;
+
+import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Verified programs kept on disk, see ProgramSerializer, in files named by the SHA-256 of their
+// source.  A script that has been verified once is loaded from its file afterwards rather than
+// being parsed and verified again.
+//
+// Entries are loaded without being verified, so the directory and every entry loaded must belong
+// to the current user and be writable by no one else: the directory is made owner only, a
+// directory anyone else can write to is refused, and an entry anyone else could have written is
+// ignored and replaced.  At most maxEntries are kept, the least recently loaded are removed first.
+public class ProgramCache {
+
+    public static final String DIRECTORY_PROPERTY = "catscript.cache.dir";
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private static final Set<PosixFilePermission> OTHERS_WRITE =
+            Set.of(PosixFilePermission.GROUP_WRITE, PosixFilePermission.OTHERS_WRITE);
+
+    private final Path directory;
+    private final int maxEntries;
+    private final UserPrincipal owner;
+    private final boolean posix;
+
+    public ProgramCache(Path directory) {
+        this(directory, DEFAULT_MAX_ENTRIES);
+    }
+
+    public ProgramCache(Path directory, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+        this.posix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+        try {
+            if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+                if (posix) {
+                    Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+                } else {
+                    Files.createDirectories(directory);
+                }
+            }
+            owner = directory.getFileSystem().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+            if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS) || !trusted(directory)) {
+                throw new IllegalArgumentException("Cache directory " + directory +
+                        " must be a directory owned by " + owner.getName() + " that no one else can write to");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // the catscript.cache.dir property, or .catscript/cache in the user's home directory
+    public static Path defaultDirectory() {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory != null && !directory.isBlank()) {
+            return Paths.get(directory);
+        }
+        return Paths.get(System.getProperty("user.home"), ".catscript", "cache");
+    }
+
+    // The verified program for the source, throws ParseErrorException like verify() does when it
+    // has errors.  Programs with errors are not cached.
+    public CatScriptProgram load(String source) {
+        Path entry = directory.resolve(key(source) + ".cast");
+        if (Files.isRegularFile(entry, LinkOption.NOFOLLOW_LINKS) && trusted(entry)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(entry, LinkOption.NOFOLLOW_LINKS))) {
+                CatScriptProgram program = ProgramSerializer.read(in);
+                touch(entry);
+                return program;
+            } catch (IOException | RuntimeException e) {
+                // an unreadable entry, from another version or cut short, is replaced below
+            }
+        }
+        CatScriptProgram program = new CatScriptParser().parse(source);
+        program.verify();
+        store(entry, program);
+        return program;
+    }
+
+    public boolean contains(String source) {
+        return Files.isRegularFile(directory.resolve(key(source) + ".cast"), LinkOption.NOFOLLOW_LINKS);
+    }
+
+    // owned by the current user and, where permissions say so, writable by no one else
+    private boolean trusted(Path path) {
+        try {
+            if (!owner.equals(Files.getOwner(path, LinkOption.NOFOLLOW_LINKS))) {
+                return false;
+            }
+            if (posix) {
+                Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS);
+                return permissions.stream().noneMatch(OTHERS_WRITE::contains);
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // an entry's modified time is when it was last used, for evicting
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+        }
+    }
+
+    // removes the least recently used entries past maxEntries
+    private void evict() {
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(directory)) {
+            entries = files.filter(path -> path.getFileName().toString().endsWith(".cast"))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            return;
+        }
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        entries.sort(Comparator.comparing(ProgramCache::lastModified));
+        for (Path entry : entries.subList(0, entries.size() - maxEntries)) {
+            try {
+                Files.deleteIfExists(entry);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static FileTime lastModified(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    // written to a temporary file and moved into place, so concurrent loads never see half an
+    // entry.  Failing to write one only means the source is verified again next time.
+    private void store(Path entry, CatScriptProgram program) {
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(directory, "entry", ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+                ProgramSerializer.write(program, out);
+            }
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evict();
+        } catch (IOException e) {
+            try {
+                if (temporary != null) {
+                    Files.deleteIfExists(temporary);
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static String key(String source) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
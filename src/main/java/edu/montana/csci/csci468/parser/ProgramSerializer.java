@@ -0,0 +1,606 @@
+package edu.montana.csci.csci468.parser;
+
+import edu.montana.csci.csci468.parser.expressions.*;
+import edu.montana.csci.csci468.parser.statements.*;
+import edu.montana.csci.csci468.tokenizer.Token;
+import edu.montana.csci.csci468.tokenizer.TokenType;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// A binary form of a verified program that can be read back without tokenizing or validating
+// it.  Each element is written in tree order as its kind, its start and end tokens and whatever
+// the parser or validation gave it, children included.  Tokens and strings are written the first
+// time they are seen and referred to by number after that, and all ints are varints.  Tokens
+// read back keep their positions, type, text and the line they are on, but have no source
+// behind them.
+public class ProgramSerializer {
+
+    private static final int MAGIC = 0x43415453;
+    public static final int VERSION = 3;
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    private static final Kind[] KINDS = Kind.values();
+
+    private enum Kind {
+        ASSIGNMENT, FOR, FUNCTION_CALL_STATEMENT, FUNCTION_DEFINITION, IF, PRINT, RETURN, VARIABLE,
+        ADDITIVE, COMPARISON, EQUALITY, FACTOR, UNARY, BOOLEAN, FUNCTION_CALL, IDENTIFIER, INTEGER, LIST,
+        NULL, PARENTHESIZED, STRING, TYPE
+    }
+
+    private static final CatscriptType[] SIMPLE_TYPES = {
+            CatscriptType.INT, CatscriptType.STRING, CatscriptType.BOOLEAN,
+            CatscriptType.OBJECT, CatscriptType.NULL, CatscriptType.VOID
+    };
+    private static final int LIST_TYPE = SIMPLE_TYPES.length + 1;
+
+    public static void write(CatScriptProgram program, OutputStream stream) throws IOException {
+        Writer writer = new Writer();
+        writer.writeProgram(program);
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.write(writer.buffer, 0, writer.size);
+        out.flush();
+    }
+
+    public static CatScriptProgram read(InputStream stream) throws IOException {
+        byte[] data = stream.readAllBytes();
+        ByteBuffer header = ByteBuffer.wrap(data);
+        if (data.length < 8 || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a serialized program of version " + VERSION);
+        }
+        return new Reader(data, 8).readProgram();
+    }
+
+    // the elements are written to an array rather than a stream, which costs a synchronized
+    // call per byte
+    private static class Writer {
+
+        private byte[] buffer = new byte[4096];
+        private int size;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final Map<Token, Integer> tokens = new IdentityHashMap<>();
+        private int lastStart;
+        private int lastLine;
+
+        void writeProgram(CatScriptProgram program) {
+            writeTokens(program);
+            writeVarInt(program.getGlobalSlots());
+            writeVarInt(program.getLocalSlots());
+            writeBoolean(program.isExpression());
+            if (program.isExpression()) {
+                writeElement(program.getExpression());
+            } else {
+                writeElements(program.getStatements());
+            }
+        }
+
+        private void writeElements(List<? extends ParseElement> elements) {
+            writeVarInt(elements.size());
+            for (ParseElement element : elements) {
+                writeElement(element);
+            }
+        }
+
+        private void writeElement(ParseElement element) {
+            if (element.hasErrors()) {
+                throw new IllegalArgumentException("Only verified programs can be serialized");
+            }
+            if (element instanceof AssignmentStatement) {
+                AssignmentStatement assignment = (AssignmentStatement) element;
+                start(Kind.ASSIGNMENT, element);
+                writeString(assignment.getVariableName());
+                writeAddress(assignment.getDepth(), assignment.getSlot());
+                writeElement(assignment.getExpression());
+            } else if (element instanceof ForStatement) {
+                ForStatement forStatement = (ForStatement) element;
+                start(Kind.FOR, element);
+                writeString(forStatement.getVariableName());
+                writeSignedVarInt(forStatement.getSlot());
+                writeElement(forStatement.getExpression());
+                writeElements(forStatement.getBody());
+            } else if (element instanceof FunctionCallStatement) {
+                start(Kind.FUNCTION_CALL_STATEMENT, element);
+                writeElement(((FunctionCallStatement) element).getExpression());
+            } else if (element instanceof FunctionDefinitionStatement) {
+                FunctionDefinitionStatement function = (FunctionDefinitionStatement) element;
+                start(Kind.FUNCTION_DEFINITION, element);
+                writeString(function.getName());
+                writeVarInt(function.getParameterCount());
+                for (int i = 0; i < function.getParameterCount(); i++) {
+                    writeString(function.getParameterName(i));
+                    writeOptional(function.getParameterTypeLiteral(i));
+                }
+                writeOptional(function.getTypeLiteral());
+                writeVarInt(function.getFrameSize());
+                writeElements(function.getBody());
+            } else if (element instanceof IfStatement) {
+                IfStatement ifStatement = (IfStatement) element;
+                start(Kind.IF, element);
+                writeElement(ifStatement.getExpression());
+                writeElements(ifStatement.getTrueStatements());
+                writeElements(ifStatement.getElseStatements());
+            } else if (element instanceof PrintStatement) {
+                start(Kind.PRINT, element);
+                writeElement(((PrintStatement) element).getExpression());
+            } else if (element instanceof ReturnStatement) {
+                start(Kind.RETURN, element);
+                writeOptional(((ReturnStatement) element).getExpression());
+            } else if (element instanceof VariableStatement) {
+                VariableStatement variable = (VariableStatement) element;
+                start(Kind.VARIABLE, element);
+                writeString(variable.getVariableName());
+                writeAddress(variable.getDepth(), variable.getSlot());
+                writeType(variable.getExplicitType());
+                writeElement(variable.getExpression());
+                writeType(variable.getType());
+            } else if (element instanceof AdditiveExpression) {
+                AdditiveExpression additive = (AdditiveExpression) element;
+                writeBinary(Kind.ADDITIVE, additive, additive.getOperator(), additive.getLeftHandSide(), additive.getRightHandSide());
+            } else if (element instanceof ComparisonExpression) {
+                ComparisonExpression comparison = (ComparisonExpression) element;
+                writeBinary(Kind.COMPARISON, comparison, comparison.getOperator(), comparison.getLeftHandSide(), comparison.getRightHandSide());
+            } else if (element instanceof EqualityExpression) {
+                EqualityExpression equality = (EqualityExpression) element;
+                writeBinary(Kind.EQUALITY, equality, equality.getOperator(), equality.getLeftHandSide(), equality.getRightHandSide());
+            } else if (element instanceof FactorExpression) {
+                FactorExpression factor = (FactorExpression) element;
+                writeBinary(Kind.FACTOR, factor, factor.getOperator(), factor.getLeftHandSide(), factor.getRightHandSide());
+            } else if (element instanceof UnaryExpression) {
+                UnaryExpression unary = (UnaryExpression) element;
+                start(Kind.UNARY, element);
+                writeToken(unary.getOperator());
+                writeElement(unary.getRightHandSide());
+            } else if (element instanceof BooleanLiteralExpression) {
+                start(Kind.BOOLEAN, element);
+                writeBoolean(((BooleanLiteralExpression) element).getValue());
+            } else if (element instanceof FunctionCallExpression) {
+                FunctionCallExpression call = (FunctionCallExpression) element;
+                start(Kind.FUNCTION_CALL, element);
+                writeString(call.getName());
+                writeElements(call.getArguments());
+                writeType(call.getType());
+            } else if (element instanceof IdentifierExpression) {
+                IdentifierExpression identifier = (IdentifierExpression) element;
+                start(Kind.IDENTIFIER, element);
+                writeString(identifier.getName());
+                writeAddress(identifier.getDepth(), identifier.getSlot());
+                writeType(identifier.getType());
+            } else if (element instanceof IntegerLiteralExpression) {
+                int value = ((IntegerLiteralExpression) element).getValue();
+                start(Kind.INTEGER, element);
+                writeSignedVarInt(value);
+            } else if (element instanceof ListLiteralExpression) {
+                ListLiteralExpression list = (ListLiteralExpression) element;
+                start(Kind.LIST, element);
+                writeElements(list.getValues());
+                writeType(list.getType());
+            } else if (element instanceof NullLiteralExpression) {
+                start(Kind.NULL, element);
+            } else if (element instanceof ParenthesizedExpression) {
+                start(Kind.PARENTHESIZED, element);
+                writeElement(((ParenthesizedExpression) element).getExpression());
+            } else if (element instanceof StringLiteralExpression) {
+                start(Kind.STRING, element);
+                writeString(((StringLiteralExpression) element).getValue());
+            } else if (element instanceof TypeLiteral) {
+                start(Kind.TYPE, element);
+                writeType(((TypeLiteral) element).getType());
+            } else {
+                throw new IllegalArgumentException("Cannot serialize " + element);
+            }
+        }
+
+        private void writeOptional(ParseElement element) {
+            writeBoolean(element != null);
+            if (element != null) {
+                writeElement(element);
+            }
+        }
+
+        private void writeBinary(Kind kind, ParseElement element, Token operator, Expression left, Expression right) {
+            start(kind, element);
+            writeToken(operator);
+            writeElement(left);
+            writeElement(right);
+        }
+
+        private void start(Kind kind, ParseElement element) {
+            writeByte(kind.ordinal());
+            writeTokens(element);
+        }
+
+        private void writeTokens(ParseElement element) {
+            writeToken(element.getStart());
+            writeToken(element.getEnd());
+        }
+
+        // 0 for null, otherwise one more than the token's number, followed by the token itself
+        // the first time it is written
+        private void writeToken(Token token) {
+            if (token == null) {
+                writeVarInt(0);
+                return;
+            }
+            Integer number = tokens.get(token);
+            if (number != null) {
+                writeVarInt(number + 1);
+                return;
+            }
+            writeVarInt(tokens.size() + 1);
+            tokens.put(token, tokens.size());
+            writeByte(token.getType().ordinal());
+            // most tokens follow closely after the one written before them
+            writeSignedVarInt(token.getStart() - lastStart);
+            writeVarInt(token.getEnd() - token.getStart());
+            writeSignedVarInt(token.getLine() - lastLine);
+            writeVarInt(token.getLineOffset());
+            lastStart = token.getStart();
+            lastLine = token.getLine();
+            writeString(token.getStringValue());
+            writeString(token.getLineContent());
+        }
+
+        // numbered the same way as tokens
+        private void writeString(String string) {
+            if (string == null) {
+                writeVarInt(0);
+                return;
+            }
+            Integer number = strings.get(string);
+            if (number != null) {
+                writeVarInt(number + 1);
+                return;
+            }
+            writeVarInt(strings.size() + 1);
+            strings.put(string, strings.size());
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            writeBytes(bytes);
+        }
+
+        private void writeType(CatscriptType type) {
+            if (type instanceof CatscriptType.ListType) {
+                writeByte(LIST_TYPE);
+                writeType(((CatscriptType.ListType) type).getComponentType());
+                return;
+            }
+            for (int i = 0; i < SIMPLE_TYPES.length; i++) {
+                if (SIMPLE_TYPES[i] == type) {
+                    writeByte(i + 1);
+                    return;
+                }
+            }
+            if (type != null) {
+                throw new IllegalArgumentException("Cannot serialize type " + type);
+            }
+            writeByte(0);
+        }
+
+        // a variable's address, which is -1, -1 in a body that was never validated
+        private void writeAddress(int depth, int slot) {
+            writeSignedVarInt(depth);
+            writeSignedVarInt(slot);
+        }
+
+        private void writeSignedVarInt(int value) {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        private void writeBoolean(boolean value) {
+            writeByte(value ? 1 : 0);
+        }
+
+        private void writeByte(int value) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] bytes) {
+            if (size + bytes.length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(size * 2, size + bytes.length));
+            }
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+    }
+
+    private static class Reader {
+
+        private final byte[] data;
+        private int position;
+        private final List<String> strings = new ArrayList<>();
+        private final List<Token> tokens = new ArrayList<>();
+        private int lastStart;
+        private int lastLine;
+        private FunctionDefinitionStatement currentFunction;
+
+        Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        CatScriptProgram readProgram() throws IOException {
+            CatScriptProgram program = new CatScriptProgram();
+            program.setStart(readToken());
+            program.setEnd(readToken());
+            program.setSlots(readVarInt(), readVarInt());
+            if (readBoolean()) {
+                program.setExpression((Expression) readElement());
+            } else {
+                for (Statement statement : this.<Statement>readElements()) {
+                    program.addStatement(statement);
+                }
+            }
+            return program;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T extends ParseElement> List<T> readElements() throws IOException {
+            int count = readVarInt();
+            if (count == 0) {
+                return Collections.emptyList();
+            }
+            List<T> elements = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                elements.add((T) readElement());
+            }
+            return elements;
+        }
+
+        private ParseElement readElement() throws IOException {
+            int ordinal = readUnsignedByte();
+            if (ordinal >= KINDS.length) {
+                throw new IOException("Unknown element kind " + ordinal);
+            }
+            Token start = readToken();
+            Token end = readToken();
+            ParseElement element;
+            switch (KINDS[ordinal]) {
+                case ASSIGNMENT: {
+                    AssignmentStatement assignment = new AssignmentStatement();
+                    assignment.setVariableName(readString());
+                    assignment.setAddress(readSignedVarInt(), readSignedVarInt());
+                    assignment.setExpression((Expression) readElement());
+                    element = assignment;
+                    break;
+                }
+                case FOR: {
+                    ForStatement forStatement = new ForStatement();
+                    forStatement.setVariableName(readString());
+                    forStatement.setSlot(readSignedVarInt());
+                    forStatement.setExpression((Expression) readElement());
+                    forStatement.setBody(readElements());
+                    element = forStatement;
+                    break;
+                }
+                case FUNCTION_CALL_STATEMENT:
+                    element = new FunctionCallStatement((FunctionCallExpression) readElement());
+                    break;
+                case FUNCTION_DEFINITION: {
+                    FunctionDefinitionStatement function = new FunctionDefinitionStatement();
+                    function.setName(readString());
+                    int parameters = readVarInt();
+                    for (int i = 0; i < parameters; i++) {
+                        String name = readString();
+                        function.addParameter(name, (TypeLiteral) readOptional());
+                    }
+                    function.setType((TypeLiteral) readOptional());
+                    function.setFrameSize(readVarInt());
+                    FunctionDefinitionStatement enclosing = currentFunction;
+                    currentFunction = function;
+                    function.setBody(readElements());
+                    currentFunction = enclosing;
+                    element = function;
+                    break;
+                }
+                case IF: {
+                    IfStatement ifStatement = new IfStatement();
+                    ifStatement.setExpression((Expression) readElement());
+                    ifStatement.setTrueStatements(readElements());
+                    ifStatement.setElseStatements(readElements());
+                    element = ifStatement;
+                    break;
+                }
+                case PRINT: {
+                    PrintStatement print = new PrintStatement();
+                    print.setExpression((Expression) readElement());
+                    element = print;
+                    break;
+                }
+                case RETURN: {
+                    ReturnStatement returnStatement = new ReturnStatement();
+                    returnStatement.setFunctionDefinition(currentFunction);
+                    Expression expression = (Expression) readOptional();
+                    if (expression != null) {
+                        returnStatement.setExpression(expression);
+                    }
+                    element = returnStatement;
+                    break;
+                }
+                case VARIABLE: {
+                    VariableStatement variable = new VariableStatement();
+                    variable.setVariableName(readString());
+                    variable.setAddress(readSignedVarInt(), readSignedVarInt());
+                    variable.setExplicitType(readType());
+                    variable.setExpression((Expression) readElement());
+                    variable.setType(readType());
+                    element = variable;
+                    break;
+                }
+                case ADDITIVE:
+                    element = new AdditiveExpression(readToken(), (Expression) readElement(), (Expression) readElement());
+                    break;
+                case COMPARISON:
+                    element = new ComparisonExpression(readToken(), (Expression) readElement(), (Expression) readElement());
+                    break;
+                case EQUALITY:
+                    element = new EqualityExpression(readToken(), (Expression) readElement(), (Expression) readElement());
+                    break;
+                case FACTOR:
+                    element = new FactorExpression(readToken(), (Expression) readElement(), (Expression) readElement());
+                    break;
+                case UNARY:
+                    element = new UnaryExpression(readToken(), (Expression) readElement());
+                    break;
+                case BOOLEAN:
+                    element = new BooleanLiteralExpression(readBoolean());
+                    break;
+                case FUNCTION_CALL: {
+                    String name = readString();
+                    FunctionCallExpression call = new FunctionCallExpression(name, readElements());
+                    call.setType(readType());
+                    element = call;
+                    break;
+                }
+                case IDENTIFIER: {
+                    IdentifierExpression identifier = new IdentifierExpression(readString());
+                    identifier.setAddress(readSignedVarInt(), readSignedVarInt());
+                    identifier.setType(readType());
+                    element = identifier;
+                    break;
+                }
+                case INTEGER: {
+                    element = new IntegerLiteralExpression(Integer.toString(readSignedVarInt()));
+                    break;
+                }
+                case LIST: {
+                    ListLiteralExpression list = new ListLiteralExpression(readElements());
+                    list.setType(readType());
+                    element = list;
+                    break;
+                }
+                case NULL:
+                    element = new NullLiteralExpression();
+                    break;
+                case PARENTHESIZED:
+                    element = new ParenthesizedExpression((Expression) readElement());
+                    break;
+                case STRING:
+                    element = new StringLiteralExpression(readString());
+                    break;
+                case TYPE: {
+                    TypeLiteral typeLiteral = new TypeLiteral();
+                    typeLiteral.setType(readType());
+                    element = typeLiteral;
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown element kind " + ordinal);
+            }
+            element.setStart(start);
+            element.setEnd(end);
+            return element;
+        }
+
+        private ParseElement readOptional() throws IOException {
+            return readBoolean() ? readElement() : null;
+        }
+
+        private Token readToken() throws IOException {
+            int number = readVarInt() - 1;
+            if (number < 0) {
+                return null;
+            } else if (number < tokens.size()) {
+                return tokens.get(number);
+            } else if (number > tokens.size()) {
+                throw new IOException("Token " + number + " read before it was written");
+            }
+            int type = readUnsignedByte();
+            if (type >= TOKEN_TYPES.length) {
+                throw new IOException("Unknown token type " + type);
+            }
+            int start = lastStart + readSignedVarInt();
+            int end = start + readVarInt();
+            int line = lastLine + readSignedVarInt();
+            int lineOffset = readVarInt();
+            lastStart = start;
+            lastLine = line;
+            Token token = Token.detached(start, end, line, lineOffset, readString(), TOKEN_TYPES[type], readString());
+            tokens.add(token);
+            return token;
+        }
+
+        private String readString() throws IOException {
+            int number = readVarInt() - 1;
+            if (number < 0) {
+                return null;
+            } else if (number < strings.size()) {
+                return strings.get(number);
+            } else if (number > strings.size()) {
+                throw new IOException("String " + number + " read before it was written");
+            }
+            int length = readVarInt();
+            if (length > data.length - position) {
+                throw new EOFException();
+            }
+            String string = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            strings.add(string);
+            return string;
+        }
+
+        private CatscriptType readType() throws IOException {
+            int tag = readUnsignedByte();
+            if (tag == 0) {
+                return null;
+            } else if (tag == LIST_TYPE) {
+                return CatscriptType.getListType(readType());
+            } else if (tag <= SIMPLE_TYPES.length) {
+                return SIMPLE_TYPES[tag - 1];
+            }
+            throw new IOException("Unknown type " + tag);
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private int readSignedVarInt() throws IOException {
+            int zigZag = readVarInt();
+            return (zigZag >>> 1) ^ -(zigZag & 1);
+        }
+
+        private boolean readBoolean() throws IOException {
+            return readUnsignedByte() != 0;
+        }
+
+        private int readUnsignedByte() throws IOException {
+            if (position == data.length) {
+                throw new EOFException();
+            }
+            return data[position++] & 0xFF;
+        }
+    }
+}
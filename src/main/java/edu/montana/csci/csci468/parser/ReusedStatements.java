@@ -0,0 +1,140 @@
+package edu.montana.csci.csci468.parser;
+
+import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
+import edu.montana.csci.csci468.parser.statements.FunctionDefinitionStatement;
+import edu.montana.csci.csci468.parser.statements.Statement;
+import edu.montana.csci.csci468.tokenizer.TokenList;
+
+import java.util.ArrayDeque;
+
+// The top level statements of a previous program that can stand in for parsing the same tokens
+// of an edited source again.  Old tokens that end before the edit are at the same index in the
+// new token list, and old tokens from the point where re-tokenizing caught up with the old tokens
+// on are indexDelta further along.  A statement can be reused if its tokens, and the token after
+// it that the parser looked at to end it, all lie in one of those two ranges.
+class ReusedStatements {
+
+    private final TokenList tokens;
+    private final Statement[] statements;
+    private final int[] starts;
+    private final int[] ends;
+    private final int prefix;
+    private final int suffix;
+    private final int indexDelta;
+    private final ArrayDeque<ParseElement> pending = new ArrayDeque<>();
+    private int next = 0;
+
+    // tokens is the old token list re-tokenized with [offset, offset + removedLength) replaced
+    // by insertedLength chars
+    ReusedStatements(CatScriptProgram previous, TokenList tokens, int offset, int removedLength, int insertedLength) {
+        TokenList oldTokens = previous.getTokens();
+        this.tokens = tokens;
+        statements = previous.getStatements().toArray(new Statement[0]);
+        starts = new int[statements.length];
+        ends = new int[statements.length];
+        for (int i = 0; i < statements.length; i++) {
+            ends[i] = previous.getStatementEnd(i);
+            starts[i] = i == 0 ? 0 : ends[i - 1];
+        }
+        int oldCount = oldTokens.size();
+        indexDelta = tokens.size() - oldCount;
+        prefix = firstEndingAtOrAfter(oldTokens, offset);
+
+        int positionDelta = insertedLength - removedLength;
+        int candidate = firstStartingAtOrAfter(oldTokens, offset + removedLength);
+        while (candidate < oldCount && !(candidate + indexDelta >= prefix && candidate + indexDelta < tokens.size() &&
+                tokens.typeAt(candidate + indexDelta) == oldTokens.typeAt(candidate) &&
+                tokens.startAt(candidate + indexDelta) == oldTokens.startAt(candidate) + positionDelta)) {
+            candidate++;
+        }
+        suffix = candidate;
+    }
+
+    // The previous statement that was parsed from the tokens starting at the current token, moved
+    // to the new tokens which are moved past it, or null if there is none or it has errors
+    Statement take(TokenList tokens) {
+        int current = tokens.getCurrentIndex();
+        int delta = 0;
+        while (next < statements.length) {
+            delta = deltaOf(next);
+            if (delta != Integer.MIN_VALUE && starts[next] + delta >= current) {
+                break;
+            }
+            next++;
+        }
+        if (next == statements.length || starts[next] + delta != current) {
+            return null;
+        }
+        Statement statement = statements[next];
+        int end = ends[next] + delta;
+        next++;
+        if (!moveTokens(statement, delta)) {
+            return null;
+        }
+        tokens.setCurrentIndex(end);
+        return statement;
+    }
+
+    // the index delta of a statement's tokens, or MIN_VALUE if they were changed by the edit
+    private int deltaOf(int statement) {
+        if (ends[statement] < prefix) {
+            return 0;
+        } else if (starts[statement] >= suffix) {
+            return indexDelta;
+        } else {
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    // Moves the tokens of a statement and everything in it to the new token list.  Statements
+    // with errors or deferred function bodies are parsed again rather than reused, any tokens
+    // already moved are discarded with them.
+    private boolean moveTokens(Statement statement, int delta) {
+        pending.clear();
+        pending.push(statement);
+        while (!pending.isEmpty()) {
+            ParseElement element = pending.pop();
+            if (element.hasErrors() || isDeferred(element)) {
+                return false;
+            }
+            element.moveTokens(tokens, delta);
+            for (int i = 0; i < element.getChildCount(); i++) {
+                pending.push(element.getChild(i));
+            }
+        }
+        return true;
+    }
+
+    // a deferred function body would be parsed from a copy of the old tokens
+    private static boolean isDeferred(ParseElement element) {
+        return element instanceof FunctionDefinitionStatement && ((FunctionDefinitionStatement) element).isBodyDeferred();
+    }
+
+    private static int firstEndingAtOrAfter(TokenList tokens, int position) {
+        int low = 0;
+        int high = tokens.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens.endAt(mid) < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int firstStartingAtOrAfter(TokenList tokens, int position) {
+        int low = 0;
+        int high = tokens.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens.startAt(mid) < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
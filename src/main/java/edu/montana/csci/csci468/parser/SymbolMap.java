@@ -0,0 +1,111 @@
+package edu.montana.csci.csci468.parser;
+
+// An immutable map from names to symbols, a hash array mapped trie: put returns a new map that
+// shares every node off the path to the changed entry, so a map can be kept as a snapshot, or
+// handed to another thread, at no cost.  Each node keeps the entries and child nodes for the 5
+// hash bits of its level in one array of pairs, a pair with a null key is a child node.  Names
+// whose hashes are fully equal end up in a node below the last level that is searched in order.
+final class SymbolMap {
+
+    static final SymbolMap EMPTY = new SymbolMap(new Node(0, new Object[0]));
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node root;
+
+    private SymbolMap(Node root) {
+        this.root = root;
+    }
+
+    Object get(String name) {
+        return root.get(name, name.hashCode(), 0);
+    }
+
+    SymbolMap put(String name, Object value) {
+        Node newRoot = root.put(name, name.hashCode(), value, 0);
+        return newRoot == root ? this : new SymbolMap(newRoot);
+    }
+
+    private static final class Node {
+        private final int bitmap;
+        private final Object[] array;
+
+        Node(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        Object get(String name, int hash, int shift) {
+            if (shift >= Integer.SIZE) {
+                int index = collisionIndex(name);
+                return index < 0 ? null : array[index + 1];
+            }
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object key = array[index];
+            if (key == null) {
+                return ((Node) array[index + 1]).get(name, hash, shift + BITS);
+            }
+            return name.equals(key) ? array[index + 1] : null;
+        }
+
+        Node put(String name, int hash, Object value, int shift) {
+            if (shift >= Integer.SIZE) {
+                int index = collisionIndex(name);
+                return index < 0 ? insert(array.length, 0, name, value) : replace(index + 1, value);
+            }
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                return insert(index, bit, name, value);
+            }
+            Object key = array[index];
+            Object current = array[index + 1];
+            if (key == null) {
+                return replace(index + 1, ((Node) current).put(name, hash, value, shift + BITS));
+            }
+            if (name.equals(key)) {
+                return replace(index + 1, value);
+            }
+            // two names in one slot move down a level together
+            String otherName = (String) key;
+            Node child = EMPTY.root.put(otherName, otherName.hashCode(), current, shift + BITS)
+                    .put(name, hash, value, shift + BITS);
+            Object[] newArray = array.clone();
+            newArray[index] = null;
+            newArray[index + 1] = child;
+            return new Node(bitmap, newArray);
+        }
+
+        private int collisionIndex(String name) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (name.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private Node insert(int index, int bit, String name, Object value) {
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            newArray[index] = name;
+            newArray[index + 1] = value;
+            System.arraycopy(array, index, newArray, index + 2, array.length - index);
+            return new Node(bitmap | bit, newArray);
+        }
+
+        private Node replace(int index, Object value) {
+            if (array[index] == value) {
+                return this;
+            }
+            Object[] newArray = array.clone();
+            newArray[index] = value;
+            return new Node(bitmap, newArray);
+        }
+    }
+}
@@ -2,18 +2,50 @@ package edu.montana.csci.csci468.parser;
 
 import edu.montana.csci.csci468.parser.statements.FunctionDefinitionStatement;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.Arrays;
 
+// Names in scope during validation.  Every variable gets an address as it is registered: top
+// level variables are GLOBAL and numbered across the program, every other variable is LOCAL and
+// numbered within its frame, the function it is in or the rest of the program.  A slot is reused
+// once the scope that declared it is popped.
+//
+// The names in scope are immutable: top level names in a SymbolMap, and the names of the scopes
+// above it in a chain of bindings, innermost first.  A scope is just the chain from before it was
+// pushed, so pushing and popping a scope only moves an index and a scope that declares nothing
+// costs nothing.  A name registered again hides the old one until its scope is popped.
 public class SymbolTable {
 
-    LinkedList<Map<String, Object>> symbolStack = new LinkedList<>();
+    public static final int GLOBAL = 0;
+    public static final int LOCAL = 1;
 
-    public SymbolTable(){
-        HashMap<String, Object> globalScope = new HashMap<>();
-        symbolStack.push(globalScope);
+    private SymbolMap globals = SymbolMap.EMPTY;
+    private Binding locals;
+    // the local names and next local slot from before each pushed scope
+    private Binding[] outerBindings = new Binding[8];
+    private int[] outerLocals = new int[8];
+    private int depth = 0;
+    // the next local slot and frame size from before each pushed frame, in pairs
+    private int[] outerFrames = new int[8];
+    private int frames = 0;
+    private int globalCount = 0;
+    private int nextLocal = 0;
+    private int frameSize = 0;
+
+    // a table with the same names in scope as this one, which neither table's changes affect,
+    // for validating part of a program later or on another thread
+    public SymbolTable snapshot() {
+        SymbolTable table = new SymbolTable();
+        table.globals = globals;
+        table.locals = locals;
+        table.outerBindings = outerBindings.clone();
+        table.outerLocals = outerLocals.clone();
+        table.depth = depth;
+        table.outerFrames = outerFrames.clone();
+        table.frames = frames;
+        table.globalCount = globalCount;
+        table.nextLocal = nextLocal;
+        table.frameSize = frameSize;
+        return table;
     }
 
     public boolean hasSymbol(String name) {
@@ -21,36 +53,55 @@ public class SymbolTable {
     }
 
     private Object getSymbol(String name) {
-        Iterator<Map<String, Object>> mapIterator = symbolStack.descendingIterator();
-        while (mapIterator.hasNext()) {
-            Map<String, Object> next =  mapIterator.next();
-            Object val = next.get(name);
-            if (val != null) {
-                return val;
+        for (Binding binding = locals; binding != null; binding = binding.next) {
+            if (name.equals(binding.name)) {
+                return binding.value;
             }
         }
-        return null;
+        return globals.get(name);
     }
 
     public void registerFunction(String name, FunctionDefinitionStatement func) {
-        symbolStack.peek().put(name, func);
+        register(name, func);
     }
 
-    public void registerSymbol(String name, CatscriptType type) {
-        symbolStack.peek().put(name, type);
+    private void register(String name, Object symbol) {
+        if (depth == 0) {
+            globals = globals.put(name, symbol);
+        } else {
+            locals = new Binding(name, symbol, locals);
+        }
+    }
+
+    public Variable registerSymbol(String name, CatscriptType type) {
+        Variable variable;
+        if (depth == 0) {
+            variable = new Variable(type, GLOBAL, globalCount++);
+        } else {
+            variable = new Variable(type, LOCAL, nextLocal++);
+            frameSize = Math.max(frameSize, nextLocal);
+        }
+        register(name, variable);
+        return variable;
     }
 
     public CatscriptType getSymbolType(String name) {
+        Variable variable = getVariable(name);
+        return variable == null ? null : variable.getType();
+    }
+
+    public Variable getVariable(String name) {
         Object object = getSymbol(name);
-        if (object instanceof CatscriptType) {
-            return (CatscriptType) object;
+        if (object instanceof Variable) {
+            return (Variable) object;
         } else {
             return null;
         }
     }
 
+    // functions are only defined at the top level, and no local can have a function's name
     public FunctionDefinitionStatement getFunction(String name) {
-        Object object = getSymbol(name);
+        Object object = globals.get(name);
         if (object instanceof FunctionDefinitionStatement) {
             return (FunctionDefinitionStatement) object;
         } else {
@@ -59,10 +110,87 @@ public class SymbolTable {
     }
 
     public void pushScope() {
-        symbolStack.push(new HashMap<>());
+        if (depth == outerBindings.length) {
+            outerBindings = Arrays.copyOf(outerBindings, depth * 2);
+            outerLocals = Arrays.copyOf(outerLocals, depth * 2);
+        }
+        outerBindings[depth] = locals;
+        outerLocals[depth] = nextLocal;
+        depth++;
     }
 
     public void popScope() {
-        symbolStack.pop();
+        depth--;
+        locals = outerBindings[depth];
+        nextLocal = outerLocals[depth];
+        outerBindings[depth] = null;
+    }
+
+    // a scope whose locals are numbered from 0, for a function body
+    public void pushFrame() {
+        if (2 * frames == outerFrames.length) {
+            outerFrames = Arrays.copyOf(outerFrames, outerFrames.length * 2);
+        }
+        outerFrames[2 * frames] = nextLocal;
+        outerFrames[2 * frames + 1] = frameSize;
+        frames++;
+        nextLocal = 0;
+        frameSize = 0;
+        pushScope();
+    }
+
+    // pops a frame and returns the number of local slots it needs
+    public int popFrame() {
+        popScope();
+        int size = frameSize;
+        frames--;
+        nextLocal = outerFrames[2 * frames];
+        frameSize = outerFrames[2 * frames + 1];
+        return size;
+    }
+
+    public int getGlobalCount() {
+        return globalCount;
+    }
+
+    // the number of local slots the outermost frame needs
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    private static final class Binding {
+        private final String name;
+        private final Object value;
+        private final Binding next;
+
+        Binding(String name, Object value, Binding next) {
+            this.name = name;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    public static final class Variable {
+        private final CatscriptType type;
+        private final int depth;
+        private final int slot;
+
+        Variable(CatscriptType type, int depth, int slot) {
+            this.type = type;
+            this.depth = depth;
+            this.slot = slot;
+        }
+
+        public CatscriptType getType() {
+            return type;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
     }
 }
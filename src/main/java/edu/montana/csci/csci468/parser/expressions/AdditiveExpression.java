@@ -7,6 +7,7 @@ import edu.montana.csci.csci468.parser.ErrorType;
 import edu.montana.csci.csci468.parser.ParseError;
 import edu.montana.csci.csci468.parser.SymbolTable;
 import edu.montana.csci.csci468.tokenizer.Token;
+import edu.montana.csci.csci468.tokenizer.TokenList;
 import edu.montana.csci.csci468.tokenizer.TokenType;
 import org.objectweb.asm.Opcodes;
 
@@ -30,6 +31,10 @@ public class AdditiveExpression extends Expression {
     public Expression getRightHandSide() {
         return rightHandSide;
     }
+
+    public Token getOperator() {
+        return operator;
+    }
     public boolean isAdd() {
         return operator.getType() == TokenType.PLUS;
     }
@@ -58,6 +63,12 @@ public class AdditiveExpression extends Expression {
         }
     }
 
+    @Override
+    protected void moveTokens(TokenList tokens, int indexDelta) {
+        super.moveTokens(tokens, indexDelta);
+        operator.moveTo(tokens, indexDelta);
+    }
+
     @Override
     public String toString() {
         return super.toString() + "[" + operator.getStringValue() + "]";
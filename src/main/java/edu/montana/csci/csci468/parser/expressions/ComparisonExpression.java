@@ -7,6 +7,7 @@ import edu.montana.csci.csci468.parser.ErrorType;
 import edu.montana.csci.csci468.parser.ParseError;
 import edu.montana.csci.csci468.parser.SymbolTable;
 import edu.montana.csci.csci468.tokenizer.Token;
+import edu.montana.csci.csci468.tokenizer.TokenList;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
 
@@ -32,6 +33,16 @@ public class ComparisonExpression extends Expression {
         return rightHandSide;
     }
 
+    public Token getOperator() {
+        return operator;
+    }
+
+    @Override
+    protected void moveTokens(TokenList tokens, int indexDelta) {
+        super.moveTokens(tokens, indexDelta);
+        operator.moveTo(tokens, indexDelta);
+    }
+
     @Override
     public String toString() {
         return super.toString() + "[" + operator.getStringValue() + "]";
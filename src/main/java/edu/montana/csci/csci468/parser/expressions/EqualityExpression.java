@@ -5,6 +5,7 @@ import edu.montana.csci.csci468.eval.CatscriptRuntime;
 import edu.montana.csci.csci468.parser.CatscriptType;
 import edu.montana.csci.csci468.parser.SymbolTable;
 import edu.montana.csci.csci468.tokenizer.Token;
+import edu.montana.csci.csci468.tokenizer.TokenList;
 import edu.montana.csci.csci468.tokenizer.TokenType;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
@@ -33,6 +34,16 @@ public class EqualityExpression extends Expression {
         return rightHandSide;
     }
 
+    public Token getOperator() {
+        return operator;
+    }
+
+    @Override
+    protected void moveTokens(TokenList tokens, int indexDelta) {
+        super.moveTokens(tokens, indexDelta);
+        operator.moveTo(tokens, indexDelta);
+    }
+
     @Override
     public String toString() {
         return super.toString() + "[" + operator.getStringValue() + "]";
@@ -20,10 +20,7 @@ public class FunctionCallExpression extends Expression {
     private CatscriptType type;
 
     public FunctionCallExpression(String functionName, List<Expression> arguments) {
-        this.arguments = new LinkedList<>();
-        for (Expression value : arguments) {
-            this.arguments.add(addChild(value));
-        }
+        this.arguments = addChildren(arguments);
         this.name = functionName;
     }
 
@@ -40,20 +37,27 @@ public class FunctionCallExpression extends Expression {
         return type;
     }
 
+    public void setType(CatscriptType type) {
+        this.type = type;
+    }
+
     @Override
     public void validate(SymbolTable symbolTable) {
+        for (Expression argument : arguments) {
+            argument.validate(symbolTable);
+        }
         FunctionDefinitionStatement function = symbolTable.getFunction(getName());
         if (function == null) {
             addError(ErrorType.UNKNOWN_NAME);
             type = CatscriptType.OBJECT;
         } else {
+            function.validateCall();
             type = function.getType();
             if (arguments.size() != function.getParameterCount()) {
                 addError(ErrorType.ARG_MISMATCH);
             } else {
                 for (int i = 0; i < arguments.size(); i++) {
                     Expression argument = arguments.get(i);
-                    argument.validate(symbolTable);
                     CatscriptType parameterType = function.getParameterType(i);
                     if (!parameterType.isAssignableFrom(argument.getType())) {
                         argument.addError(ErrorType.INCOMPATIBLE_TYPES);
@@ -13,6 +13,9 @@ import static edu.montana.csci.csci468.bytecode.ByteCodeGenerator.internalNameFo
 public class IdentifierExpression extends Expression {
     private final String name;
     private CatscriptType type;
+    // the variable's address, see SymbolTable, once validated
+    private int depth = -1;
+    private int slot = -1;
 
     public IdentifierExpression(String value) {
         this.name = value;
@@ -27,13 +30,33 @@ public class IdentifierExpression extends Expression {
         return type;
     }
 
+    public void setType(CatscriptType type) {
+        this.type = type;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setAddress(int depth, int slot) {
+        this.depth = depth;
+        this.slot = slot;
+    }
+
     @Override
     public void validate(SymbolTable symbolTable) {
-        CatscriptType type = symbolTable.getSymbolType(getName());
-        if (type == null) {
+        SymbolTable.Variable variable = symbolTable.getVariable(getName());
+        if (variable == null) {
             addError(ErrorType.UNKNOWN_NAME);
+            type = CatscriptType.OBJECT;
         } else {
-            this.type = type;
+            type = variable.getType();
+            depth = variable.getDepth();
+            slot = variable.getSlot();
         }
     }
 
@@ -55,7 +78,7 @@ public class IdentifierExpression extends Expression {
 
     @Override
     public Object evaluate(CatscriptRuntime runtime) {
-        return runtime.getValue(this.getName());
+        return runtime.getValue(depth, slot);
     }
 
     @Override
@@ -65,14 +88,13 @@ public class IdentifierExpression extends Expression {
 
     @Override
     public void compile(ByteCodeGenerator code) {
-        Integer slotNum = code.resolveLocalStorageSlotFor(getName());
         String descriptor = getDescriptor();
-        if (slotNum != null) {
+        if (depth == SymbolTable.LOCAL) {
             //look up slot
             if (getType() == CatscriptType.INT || (getType() == CatscriptType.BOOLEAN)) {
-                code.addVarInstruction(Opcodes.ILOAD, slotNum);
+                code.addVarInstruction(Opcodes.ILOAD, ByteCodeGenerator.localFor(slot));
             } else {
-                code.addVarInstruction(Opcodes.ALOAD, slotNum);
+                code.addVarInstruction(Opcodes.ALOAD, ByteCodeGenerator.localFor(slot));
             }
         } else {
             //look up field
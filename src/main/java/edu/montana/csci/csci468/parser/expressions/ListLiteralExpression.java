@@ -19,10 +19,7 @@ public class ListLiteralExpression extends Expression {
     private CatscriptType type;
 
     public ListLiteralExpression(List<Expression> values) {
-        this.values = new ArrayList<>();
-        for (Expression value : values) {
-            this.values.add(addChild(value));
-        }
+        this.values = addChildren(values);
     }
 
     public List<Expression> getValues() {
@@ -59,6 +56,10 @@ public class ListLiteralExpression extends Expression {
         return type;
     }
 
+    public void setType(CatscriptType type) {
+        this.type = type;
+    }
+
     //==============================================================
     // Implementation
     //==============================================================
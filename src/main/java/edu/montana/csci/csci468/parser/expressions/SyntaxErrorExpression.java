@@ -10,8 +10,12 @@ import edu.montana.csci.csci468.tokenizer.Token;
 public class SyntaxErrorExpression extends Expression {
 
     public SyntaxErrorExpression(Token consumeToken) {
-        setToken(consumeToken);
-        addError(ErrorType.UNEXPECTED_TOKEN);
+        this(consumeToken, ErrorType.UNEXPECTED_TOKEN);
+    }
+
+    public SyntaxErrorExpression(Token token, ErrorType errorType) {
+        setToken(token);
+        addError(errorType);
     }
 
     @Override
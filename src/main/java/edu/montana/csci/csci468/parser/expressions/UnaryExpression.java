@@ -7,6 +7,7 @@ import edu.montana.csci.csci468.parser.ErrorType;
 import edu.montana.csci.csci468.parser.ParseError;
 import edu.montana.csci.csci468.parser.SymbolTable;
 import edu.montana.csci.csci468.tokenizer.Token;
+import edu.montana.csci.csci468.tokenizer.TokenList;
 import edu.montana.csci.csci468.tokenizer.TokenType;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
@@ -25,6 +26,10 @@ public class UnaryExpression extends Expression {
         return rightHandSide;
     }
 
+    public Token getOperator() {
+        return operator;
+    }
+
     public boolean isMinus() {
         return operator.getType().equals(TokenType.MINUS);
     }
@@ -33,6 +38,12 @@ public class UnaryExpression extends Expression {
         return !isMinus();
     }
 
+    @Override
+    protected void moveTokens(TokenList tokens, int indexDelta) {
+        super.moveTokens(tokens, indexDelta);
+        operator.moveTo(tokens, indexDelta);
+    }
+
     @Override
     public String toString() {
         return super.toString() + "[" + operator.getStringValue() + "]";
@@ -7,10 +7,16 @@ import edu.montana.csci.csci468.parser.ErrorType;
 import edu.montana.csci.csci468.parser.ParseError;
 import edu.montana.csci.csci468.parser.SymbolTable;
 import edu.montana.csci.csci468.parser.expressions.Expression;
+import org.objectweb.asm.Opcodes;
+
+import static edu.montana.csci.csci468.bytecode.ByteCodeGenerator.internalNameFor;
 
 public class AssignmentStatement extends Statement {
     private Expression expression;
     private String variableName;
+    // the variable's address, see SymbolTable, once validated
+    private int depth = -1;
+    private int slot = -1;
 
     public Expression getExpression() {
         return expression;
@@ -28,14 +34,29 @@ public class AssignmentStatement extends Statement {
         this.variableName = variableName;
     }
 
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setAddress(int depth, int slot) {
+        this.depth = depth;
+        this.slot = slot;
+    }
+
     @Override
     public void validate(SymbolTable symbolTable) {
         expression.validate(symbolTable);
-        CatscriptType symbolType = symbolTable.getSymbolType(getVariableName());
-        if (symbolType == null) {
+        SymbolTable.Variable variable = symbolTable.getVariable(getVariableName());
+        if (variable == null) {
             addError(ErrorType.UNKNOWN_NAME);
         } else {
-            if (!expression.getType().equals(symbolType)) {
+            depth = variable.getDepth();
+            slot = variable.getSlot();
+            if (!expression.getType().equals(variable.getType())) {
                 addError(ErrorType.INCOMPATIBLE_TYPES);
             }
         }
@@ -46,7 +67,7 @@ public class AssignmentStatement extends Statement {
     //==============================================================
     @Override
     public void execute(CatscriptRuntime runtime) {
-        super.execute(runtime);
+        runtime.setValue(depth, slot, expression.evaluate(runtime));
     }
 
     @Override
@@ -56,6 +77,16 @@ public class AssignmentStatement extends Statement {
 
     @Override
     public void compile(ByteCodeGenerator code) {
-        super.compile(code);
+        CatscriptType type = expression.getType();
+        boolean primitive = type == CatscriptType.INT || type == CatscriptType.BOOLEAN;
+        if (depth == SymbolTable.GLOBAL) {
+            String descriptor = primitive ? "I" : "L" + internalNameFor(type.getJavaType()) + ";";
+            code.addVarInstruction(Opcodes.ALOAD, 0);
+            expression.compile(code);
+            code.addFieldInstruction(Opcodes.PUTFIELD, getVariableName(), descriptor, code.getProgramInternalName());
+        } else {
+            expression.compile(code);
+            code.addVarInstruction(primitive ? Opcodes.ISTORE : Opcodes.ASTORE, ByteCodeGenerator.localFor(slot));
+        }
     }
 }
@@ -5,21 +5,31 @@ import edu.montana.csci.csci468.eval.CatscriptRuntime;
 import edu.montana.csci.csci468.parser.CatscriptType;
 import edu.montana.csci.csci468.parser.SymbolTable;
 import edu.montana.csci.csci468.parser.expressions.Expression;
+import edu.montana.csci.csci468.tokenizer.TokenList;
 import org.objectweb.asm.Opcodes;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static edu.montana.csci.csci468.bytecode.ByteCodeGenerator.internalNameFor;
 
 public class CatScriptProgram extends Statement {
 
     private StringBuffer output = new StringBuffer();
-    private List<Statement> statements = new LinkedList<>();
+    private List<Statement> statements = new ArrayList<>();
     private Map<String, FunctionDefinitionStatement> functions = new HashMap<>();
     private Expression expression;
+    // the tokens the program was parsed from, and the index just past each statement's tokens
+    private TokenList tokens;
+    private int[] statementEnds = new int[16];
+    // the slots validation gave variables, see SymbolTable
+    private int globalSlots;
+    private int localSlots;
 
     public void print(Object v) {
         output.append(v).append("\n");
@@ -38,6 +48,27 @@ public class CatScriptProgram extends Statement {
         }
     }
 
+    // adds a statement that was parsed from the tokens before endToken
+    public void addStatement(Statement child, int endToken) {
+        if (statements.size() == statementEnds.length) {
+            statementEnds = Arrays.copyOf(statementEnds, statementEnds.length * 2);
+        }
+        statementEnds[statements.size()] = endToken;
+        addStatement(child);
+    }
+
+    public int getStatementEnd(int statement) {
+        return statementEnds[statement];
+    }
+
+    public TokenList getTokens() {
+        return tokens;
+    }
+
+    public void setTokens(TokenList tokens) {
+        this.tokens = tokens;
+    }
+
     public void setExpression(Expression expression) {
         this.expression = addChild(expression);
     }
@@ -58,6 +89,19 @@ public class CatScriptProgram extends Statement {
         return functions.get(name);
     }
 
+    public int getGlobalSlots() {
+        return globalSlots;
+    }
+
+    public int getLocalSlots() {
+        return localSlots;
+    }
+
+    public void setSlots(int globalSlots, int localSlots) {
+        this.globalSlots = globalSlots;
+        this.localSlots = localSlots;
+    }
+
     @Override
     public void validate(SymbolTable symbolTable) {
         if (expression != null) {
@@ -67,10 +111,40 @@ public class CatScriptProgram extends Statement {
                 statement.validate(symbolTable);
             }
         }
+        globalSlots = symbolTable.getGlobalCount();
+        localSlots = symbolTable.getFrameSize();
+    }
+
+    // Function bodies are validated on the pool, each against a snapshot of the names in scope
+    // at its definition, while the rest of the program is validated here.  Validating a body
+    // only changes elements inside it, and a deferred body is validated once whichever thread
+    // reaches a call first, so the tree ends up as validate() would leave it.
+    @Override
+    protected void validate(SymbolTable symbolTable, ForkJoinPool pool) {
+        if (expression != null || pool.getParallelism() < 2) {
+            validate(symbolTable);
+            return;
+        }
+        List<ForkJoinTask<?>> bodies = new ArrayList<>();
+        for (Statement statement : statements) {
+            if (statement instanceof FunctionDefinitionStatement) {
+                SymbolTable snapshot = symbolTable.snapshot();
+                bodies.add(pool.submit(() -> statement.validate(snapshot)));
+            } else {
+                statement.validate(symbolTable);
+            }
+        }
+        for (ForkJoinTask<?> body : bodies) {
+            body.join();
+        }
+        globalSlots = symbolTable.getGlobalCount();
+        localSlots = symbolTable.getFrameSize();
     }
 
     public void execute() {
-        execute(new CatscriptRuntime());
+        CatscriptRuntime runtime = new CatscriptRuntime();
+        runtime.pushFrame(localSlots);
+        execute(runtime);
     }
 
     //==============================================================
@@ -110,6 +184,7 @@ public class CatScriptProgram extends Statement {
                     "print", "(Ljava/lang/Object;)V");
             code.addInstruction(Opcodes.RETURN);
         } else {
+            code.reserveLocalStorageSlots(localSlots);
             for (Statement statement : statements) {
                 statement.compile(code);
             }
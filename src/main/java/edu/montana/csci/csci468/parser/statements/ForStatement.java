@@ -12,7 +12,6 @@ import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
 
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
 import static edu.montana.csci.csci468.bytecode.ByteCodeGenerator.internalNameFor;
@@ -21,6 +20,8 @@ public class ForStatement extends Statement {
     private Expression expression;
     private String variableName;
     private List<Statement> body;
+    // the loop variable's address, see SymbolTable, once validated
+    private int slot = -1;
 
     public void setExpression(Expression expression) {
         this.expression = addChild(expression);
@@ -31,10 +32,7 @@ public class ForStatement extends Statement {
     }
 
     public void setBody(List<Statement> statements) {
-        this.body = new LinkedList<>();
-        for (Statement statement : statements) {
-            this.body.add(addChild(statement));
-        }
+        this.body = addChildren(statements);
     }
 
     public Expression getExpression() {
@@ -49,6 +47,15 @@ public class ForStatement extends Statement {
         return body;
     }
 
+    // loop variables are always LOCAL
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
     @Override
     public void validate(SymbolTable symbolTable) {
         symbolTable.pushScope();
@@ -58,10 +65,10 @@ public class ForStatement extends Statement {
             expression.validate(symbolTable);
             CatscriptType type = expression.getType();
             if (type instanceof CatscriptType.ListType) {
-                symbolTable.registerSymbol(variableName, getComponentType());
+                slot = symbolTable.registerSymbol(variableName, getComponentType()).getSlot();
             } else {
                 addError(ErrorType.INCOMPATIBLE_TYPES, getStart());
-                symbolTable.registerSymbol(variableName, CatscriptType.OBJECT);
+                slot = symbolTable.registerSymbol(variableName, CatscriptType.OBJECT).getSlot();
             }
         }
         for (Statement statement : body) {
@@ -82,7 +89,7 @@ public class ForStatement extends Statement {
         List evaluate = (List) expression.evaluate(runtime);
 
         for (Object o : evaluate) {
-            runtime.setValue(this.variableName, o);
+            runtime.setValue(SymbolTable.LOCAL, slot, o);
             for (Statement statement : body) {
                 statement.execute(runtime);
             }
@@ -119,7 +126,7 @@ public class ForStatement extends Statement {
         code.addTypeInstruction(Opcodes.CHECKCAST, internalNameFor(componentType.getJavaType()));
         unbox(code, componentType);
 
-        Integer iteratorVariableSlot = code.createLocalStorageSlotFor(variableName);
+        int iteratorVariableSlot = ByteCodeGenerator.localFor(slot);
         if (componentType.equals(CatscriptType.INT) || componentType.equals(CatscriptType.BOOLEAN)) {
             code.addVarInstruction(Opcodes.ISTORE, iteratorVariableSlot);
         } else {
@@ -11,8 +11,8 @@ import edu.montana.csci.csci468.parser.expressions.TypeLiteral;
 import org.objectweb.asm.Opcodes;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static edu.montana.csci.csci468.bytecode.ByteCodeGenerator.internalNameFor;
 
@@ -21,7 +21,17 @@ public class FunctionDefinitionStatement extends Statement {
     private CatscriptType type;
     private List<CatscriptType> argumentTypes = new ArrayList<>();
     private List<String> argumentNames = new ArrayList<>();
-    private LinkedList<Statement> body;
+    // null where a type wasn't given, or couldn't be parsed
+    private List<TypeLiteral> argumentTypeLiterals = new ArrayList<>();
+    private TypeLiteral typeLiteral;
+    private List<Statement> body;
+    // the parse of a body the parser deferred, until it's needed, and the symbols to validate
+    // it against once it's called if its definition was validated first
+    private volatile Supplier<List<Statement>> deferredBody;
+    private SymbolTable deferredSymbols;
+    private boolean called;
+    // the number of LOCAL slots a call needs, once validated
+    private int frameSize;
 
     public void setName(String name) {
         this.name = name;
@@ -32,6 +42,7 @@ public class FunctionDefinitionStatement extends Statement {
     }
 
     public void setType(TypeLiteral typeLiteral) {
+        this.typeLiteral = typeLiteral;
         if (typeLiteral == null) {
             type = CatscriptType.VOID;
         } else {
@@ -46,6 +57,7 @@ public class FunctionDefinitionStatement extends Statement {
 
     public void addParameter(String name, TypeLiteral typeLiteral) {
         argumentNames.add(name);
+        argumentTypeLiterals.add(typeLiteral);
         if (typeLiteral == null) {
             argumentTypes.add(CatscriptType.OBJECT);
         } else {
@@ -62,24 +74,83 @@ public class FunctionDefinitionStatement extends Statement {
         return argumentTypes.get(i);
     }
 
+    public TypeLiteral getParameterTypeLiteral(int i) {
+        return argumentTypeLiterals.get(i);
+    }
+
+    public TypeLiteral getTypeLiteral() {
+        return typeLiteral;
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public void setFrameSize(int frameSize) {
+        this.frameSize = frameSize;
+    }
+
     public int getParameterCount() {
         return argumentNames.size();
     }
 
     public void setBody(List<Statement> statements) {
-        this.body = new LinkedList<>();
-        for (Statement statement : statements) {
-            this.body.add(addChild(statement));
-        }
+        this.body = addChildren(statements);
+    }
+
+    // a body that is parsed the first time it's needed, see CatScriptParser.setLazyFunctionBodies
+    public void setBody(Supplier<List<Statement>> deferredBody) {
+        this.deferredBody = deferredBody;
+    }
+
+    public boolean isBodyDeferred() {
+        return deferredBody != null;
     }
 
     public List<Statement> getBody() {
+        if (deferredBody != null) {
+            parseDeferredBody();
+        }
         return body;
     }
 
+    private synchronized void parseDeferredBody() {
+        if (deferredBody != null) {
+            setBody(deferredBody.get());
+            deferredBody = null;
+        }
+    }
+
+    // A deferred body is neither parsed nor validated with its definition, but when validation
+    // first reaches a call to the function.  It sees the names in scope at its definition, like
+    // a body validated with it would.
     @Override
     public void validate(SymbolTable symbolTable) {
-        symbolTable.pushScope();
+        synchronized (this) {
+            if (deferredBody != null && !called) {
+                deferredSymbols = symbolTable.snapshot();
+                return;
+            }
+        }
+        validateBody(symbolTable);
+    }
+
+    // called by the validation of each call to this function
+    public void validateCall() {
+        SymbolTable symbolTable;
+        synchronized (this) {
+            called = true;
+            symbolTable = deferredSymbols;
+            deferredSymbols = null;
+        }
+        if (symbolTable != null) {
+            validateBody(symbolTable);
+        }
+    }
+
+    private void validateBody(SymbolTable symbolTable) {
+        List<Statement> body = getBody();
+        symbolTable.pushFrame();
         for (int i = 0; i < getParameterCount(); i++) {
             if (symbolTable.hasSymbol(getParameterName(i))) {
                 addError(ErrorType.DUPLICATE_NAME);
@@ -90,7 +161,7 @@ public class FunctionDefinitionStatement extends Statement {
         for (Statement statement : body) {
             statement.validate(symbolTable);
         }
-        symbolTable.popScope();
+        frameSize = symbolTable.popFrame();
         if (!type.equals(CatscriptType.VOID)) {
             if (!validateReturnCoverage(body)) {
                 addError(ErrorType.MISSING_RETURN_STATEMENT);
@@ -105,20 +176,21 @@ public class FunctionDefinitionStatement extends Statement {
     }
 
     public Object invoke(CatscriptRuntime runtime, List<Object> args) {
-        runtime.pushScope();
+        runtime.pushFrame(frameSize);
         int parameterCount = getParameterCount();
         for (int i = 0; i < parameterCount; i++) {
-            runtime.setValue(getParameterName(i), args.get(i));
+            // parameters are the first slots of the frame
+            runtime.setValue(SymbolTable.LOCAL, i, args.get(i));
         }
         Object returnVal = null;
         try {
-            for (Statement statement : body) {
+            for (Statement statement : getBody()) {
                 statement.execute(runtime);
             }
         } catch (ReturnException re) {
             returnVal = re.getValue();
         } finally {
-            runtime.popScope();
+            runtime.popFrame();
         }
         return returnVal;
     }
@@ -158,16 +230,15 @@ public class FunctionDefinitionStatement extends Statement {
 
     @Override
     public void compile(ByteCodeGenerator code) {
-        code.pushMethod(Opcodes.ACC_PUBLIC, getName(), getDescriptor());
-
-        for (String argumentName : argumentNames) {
-            CatscriptType currArgType = argumentTypes.get(argumentNames.indexOf(argumentName));
-
-            Integer slotForArg = code.createLocalStorageSlotFor(argumentName);
+        if (deferredSymbols != null) {
+            return; // a deferred body that is never called is never validated, or needed
         }
+        code.pushMethod(Opcodes.ACC_PUBLIC, getName(), getDescriptor());
+        // the arguments are already in the frame's first slots
+        code.reserveLocalStorageSlots(frameSize);
 
         //compile the body
-        for (Statement statement : body) {
+        for (Statement statement : getBody()) {
             statement.compile(code);
         }
 
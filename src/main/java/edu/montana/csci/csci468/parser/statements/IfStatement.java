@@ -11,7 +11,6 @@ import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
 
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
 public class IfStatement extends Statement {
@@ -32,10 +31,7 @@ public class IfStatement extends Statement {
     }
 
     public void setTrueStatements(List<Statement> statements) {
-        this.trueStatements = new LinkedList<>();
-        for (Statement statement : statements) {
-            this.trueStatements.add(addChild(statement));
-        }
+        this.trueStatements = addChildren(statements);
     }
 
     public List<Statement> getElseStatements() {
@@ -43,10 +39,7 @@ public class IfStatement extends Statement {
     }
 
     public void setElseStatements(List<Statement> statements) {
-        this.elseStatements = new LinkedList<>();
-        for (Statement statement : statements) {
-            this.elseStatements.add(addChild(statement));
-        }
+        this.elseStatements = addChildren(statements);
     }
 
     @Override
@@ -45,7 +45,6 @@ public class ReturnStatement extends Statement {
     @Override
     public void execute(CatscriptRuntime runtime) {
         Object retVal = expression.evaluate(runtime);
-        runtime.setValue(function.getName(), retVal);
         throw new ReturnException(retVal);
     }
 
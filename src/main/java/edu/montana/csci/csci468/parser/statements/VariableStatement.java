@@ -16,6 +16,9 @@ public class VariableStatement extends Statement {
     private String variableName;
     private CatscriptType explicitType;
     private CatscriptType type;
+    // the variable's address, see SymbolTable, once validated
+    private int depth = -1;
+    private int slot = -1;
 
     public Expression getExpression() {
         return expression;
@@ -41,6 +44,19 @@ public class VariableStatement extends Statement {
         return explicitType;
     }
 
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setAddress(int depth, int slot) {
+        this.depth = depth;
+        this.slot = slot;
+    }
+
     public boolean isGlobal() {
         return getParent() instanceof CatScriptProgram;
     }
@@ -62,9 +78,10 @@ public class VariableStatement extends Statement {
                 }
             } else {
                 this.type = expression.getType();
-                setExplicitType(expression.getType());
             }
-            symbolTable.registerSymbol(variableName, type);
+            SymbolTable.Variable variable = symbolTable.registerSymbol(variableName, type);
+            depth = variable.getDepth();
+            slot = variable.getSlot();
         }
     }
 
@@ -72,12 +89,16 @@ public class VariableStatement extends Statement {
         return type;
     }
 
+    public void setType(CatscriptType type) {
+        this.type = type;
+    }
+
     //==============================================================
     // Implementation
     //==============================================================
     @Override
     public void execute(CatscriptRuntime runtime) {
-        runtime.setValue(getVariableName(), expression.evaluate(runtime));
+        runtime.setValue(depth, slot, expression.evaluate(runtime));
         return;
     }
 
@@ -88,7 +109,7 @@ public class VariableStatement extends Statement {
 
     @Override
     public void compile(ByteCodeGenerator code) {
-        if(isGlobal()){ //store in field
+        if(depth == SymbolTable.GLOBAL){ //store in field
             String descriptor;
             if (getType() == CatscriptType.INT || getType() == CatscriptType.BOOLEAN) {
                 descriptor = "I";
@@ -101,11 +122,11 @@ public class VariableStatement extends Statement {
             code.addFieldInstruction(Opcodes.PUTFIELD, getVariableName(), descriptor, code.getProgramInternalName());
         } else { //store in slot
             expression.compile(code);
-            Integer slotForVar = code.createLocalStorageSlotFor(getVariableName());
+            int local = ByteCodeGenerator.localFor(slot);
             if (getType() == CatscriptType.INT || (getType() == CatscriptType.BOOLEAN)) {
-                code.addVarInstruction(Opcodes.ISTORE, slotForVar); // if not an int (or bool)
+                code.addVarInstruction(Opcodes.ISTORE, local); // if not an int (or bool)
             } else {
-                code.addVarInstruction(Opcodes.ASTORE, slotForVar); // if not an int
+                code.addVarInstruction(Opcodes.ASTORE, local); // if not an int
             }
 
         }
@@ -1,121 +1,441 @@
 package edu.montana.csci.csci468.tokenizer;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
 import static edu.montana.csci.csci468.tokenizer.TokenType.*;
 
 public class CatScriptTokenizer {
 
+    static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    //===============================================================
+    // Character classes, the scanner dispatches on these
+    //===============================================================
+
+    private static final byte OTHER = 0;
+    private static final byte WHITESPACE = 1;
+    private static final byte NEWLINE = 2;
+    private static final byte DIGIT = 3;
+    private static final byte ALPHA = 4;
+    private static final byte QUOTE = 5;
+    private static final byte SINGLE = 6;
+    private static final byte OPERATOR = 7;
+
+    private static final byte[] CHAR_CLASSES = new byte[128];
+    private static final TokenType[] SINGLE_CHAR_TOKENS = new TokenType[128];
+    static {
+        CHAR_CLASSES[' '] = WHITESPACE;
+        CHAR_CLASSES['\r'] = WHITESPACE;
+        CHAR_CLASSES['\t'] = WHITESPACE;
+        CHAR_CLASSES['\n'] = NEWLINE;
+        for (char c = '0'; c <= '9'; c++) {
+            CHAR_CLASSES[c] = DIGIT;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASSES[c] = ALPHA;
+            CHAR_CLASSES[Character.toUpperCase(c)] = ALPHA;
+        }
+        CHAR_CLASSES['_'] = ALPHA;
+        CHAR_CLASSES['"'] = QUOTE;
+        for (char c : "/=<>!".toCharArray()) {
+            CHAR_CLASSES[c] = OPERATOR;
+        }
+        singleCharToken('(', LEFT_PAREN);
+        singleCharToken(')', RIGHT_PAREN);
+        singleCharToken('{', LEFT_BRACE);
+        singleCharToken('}', RIGHT_BRACE);
+        singleCharToken('[', LEFT_BRACKET);
+        singleCharToken(']', RIGHT_BRACKET);
+        singleCharToken(':', COLON);
+        singleCharToken(',', COMMA);
+        singleCharToken('.', DOT);
+        singleCharToken('-', MINUS);
+        singleCharToken('+', PLUS);
+        singleCharToken('*', STAR);
+    }
+
+    private static void singleCharToken(char c, TokenType type) {
+        CHAR_CLASSES[c] = SINGLE;
+        SINGLE_CHAR_TOKENS[c] = type;
+    }
+
+    private static byte charClass(char c) {
+        return c < 128 ? CHAR_CLASSES[c] : OTHER;
+    }
+
     TokenList tokenList;
     String src;
+    // set instead of src when tokenizing a stream, see SourceWindow
+    SourceWindow window;
+    // set when the stream is UTF-8 bytes, maps positions to byte offsets
+    private Utf8Source utf8;
+    // the end of the source this tokenizer scans, when tokenizing a string
+    private int limit;
+    // one per source, ParallelTokenizer's pieces share the whole source's.  An edited source
+    // starts a fresh one, so an editor kept open only holds on to the names in its current source
+    // rather than every one typed along the way.
+    private SymbolPool symbols = new SymbolPool();
     int postion = 0;
     int line = 1;
     int lineOffset = 0;
+    boolean complete = false;
+
+    // where the token being scanned began, tokens may span lines (strings, errors)
+    private int tokenStart;
+    private int tokenLine;
+    private int tokenLineOffset;
+
+    // where each line begins, lineStarts[n] is the start of line n + 1, not kept when streaming
+    private int[] lineStarts = new int[64];
+    private int lineCount = 1;
+
+    private int cachedLineStart = -1;
+    private String cachedLineContent;
 
     public CatScriptTokenizer(String source) {
         src = source;
+        limit = source.length();
         tokenList = new TokenList(this);
         tokenize();
     }
 
+    // Splits large sources at line boundaries outside of strings and comments and tokenizes the
+    // pieces on the given pool, see ParallelTokenizer
+    public static CatScriptTokenizer tokenizeInParallel(String source, ForkJoinPool pool) {
+        return ParallelTokenizer.tokenize(source, pool);
+    }
+
+    public static CatScriptTokenizer tokenizeInParallel(String source) {
+        return tokenizeInParallel(source, ForkJoinPool.commonPool());
+    }
+
+    // tokenizes [start, end) of a source for ParallelTokenizer, the range must begin and end on
+    // a line boundary outside of any string or comment
+    CatScriptTokenizer(String source, int start, int end, int startLine, SymbolPool symbols) {
+        src = source;
+        this.symbols = symbols;
+        limit = end;
+        postion = start;
+        line = startLine;
+        lineStarts = null;
+        tokenList = new TokenList(this);
+        tokenize();
+    }
+
+    // a source that has already been scanned, ParallelTokenizer fills in the token list
+    CatScriptTokenizer(String source, int[] lineStarts, int lineCount) {
+        src = source;
+        limit = source.length();
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+        tokenList = new TokenList(this);
+        complete = true;
+    }
+
+    // Tokenizes the source of a previous token list with [offset, offset + removedLength) replaced
+    // by inserted.  Scanning restarts after the last token that ends before the edit and stops as
+    // soon as a token starts where an old token did, the old tokens after that are copied over with
+    // their positions and lines shifted, so the work done is proportional to the edit
+    public CatScriptTokenizer(TokenList previous, int offset, int removedLength, String inserted) {
+        CatScriptTokenizer old = previous.getTokenizer();
+        if (old.isStreaming()) {
+            throw new IllegalArgumentException("Cannot re-tokenize a streamed token list");
+        }
+        src = old.src.substring(0, offset) + inserted + old.src.substring(offset + removedLength);
+        limit = src.length();
+        tokenList = new TokenList(this);
+
+        int oldCount = previous.size();
+        int restart = lastTokenEndingBefore(previous, offset);
+        tokenList.appendShifted(previous, 0, restart + 1, 0, 0, 0, 0);
+        postion = restart < 0 ? 0 : previous.endAt(restart);
+        line = old.lineOf(postion);
+        lineOffset = postion - old.lineStarts[line - 1];
+        lineStarts = Arrays.copyOf(old.lineStarts, old.lineStarts.length);
+        lineCount = line;
+
+        int delta = inserted.length() - removedLength;
+        int editEnd = offset + inserted.length();
+        int candidate = restart + 1;
+        while (!complete) {
+            int index = tokenList.scannedCount();
+            scanNext();
+            if (index == tokenList.scannedCount() || tokenList.startAt(index) < editEnd) {
+                continue;
+            }
+            int start = tokenList.startAt(index);
+            while (candidate < oldCount && previous.startAt(candidate) + delta < start) {
+                candidate++;
+            }
+            if (candidate < oldCount && previous.startAt(candidate) + delta == start &&
+                    previous.typeAt(candidate) == tokenList.typeAt(index) && !complete) {
+                // everything from here on is the same text the old tokens were scanned from
+                int oldLine = previous.lineAt(candidate);
+                tokenList.appendShifted(previous, candidate + 1, oldCount, delta,
+                        tokenList.lineAt(index) - oldLine,
+                        oldLine, tokenList.lineOffsetAt(index) - previous.lineOffsetAt(candidate));
+                for (int i = old.lineOf(postion - delta); i < old.lineCount; i++) {
+                    addLineStart(old.lineStarts[i] + delta);
+                }
+                complete = true;
+            }
+        }
+    }
+
+    // Re-tokenizes a previous token list against a new version of its source, treating everything
+    // between the common prefix and suffix of the two as the edit
+    public static CatScriptTokenizer retokenize(TokenList previous, String source) {
+        String oldSource = previous.getSource();
+        int prefix = commonPrefix(oldSource, source);
+        int suffix = commonSuffix(oldSource, source, prefix);
+        return new CatScriptTokenizer(previous, prefix, oldSource.length() - prefix - suffix,
+                source.substring(prefix, source.length() - suffix));
+    }
+
+    // the length of the text two versions of a source start with
+    public static int commonPrefix(String oldSource, String source) {
+        int limit = Math.min(oldSource.length(), source.length());
+        int prefix = 0;
+        while (prefix < limit && oldSource.charAt(prefix) == source.charAt(prefix)) {
+            prefix++;
+        }
+        return prefix;
+    }
+
+    // the length of the text two versions of a source end with, not overlapping their prefix
+    public static int commonSuffix(String oldSource, String source, int prefix) {
+        int limit = Math.min(oldSource.length(), source.length());
+        int suffix = 0;
+        while (suffix < limit - prefix &&
+                oldSource.charAt(oldSource.length() - suffix - 1) == source.charAt(source.length() - suffix - 1)) {
+            suffix++;
+        }
+        return suffix;
+    }
+
+    private static int lastTokenEndingBefore(TokenList tokens, int position) {
+        int low = 0;
+        int high = tokens.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (tokens.endAt(mid) < position) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    // Streaming tokenizers read their input in chunks and only scan as far as the parser has
+    // asked for tokens, see TokenList.discardConsumed() for releasing consumed tokens
+    public CatScriptTokenizer(Reader reader) {
+        this(reader::read, DEFAULT_CHUNK_SIZE);
+    }
+
+    public CatScriptTokenizer(CharBuffer source) {
+        this(chunksOf(source.duplicate()), DEFAULT_CHUNK_SIZE);
+    }
+
+    CatScriptTokenizer(SourceWindow.ChunkReader reader, int chunkSize) {
+        window = new SourceWindow(reader, chunkSize);
+        lineStarts = null;
+        tokenList = new TokenList(this);
+    }
+
+    // Tokenizes UTF-8 bytes (heap, direct or mapped) without decoding them up front, see
+    // Utf8Source.  Tokens can report their byte offsets as well as their character positions.
+    public CatScriptTokenizer(ByteBuffer source) {
+        this(new Utf8Source(source.duplicate()), DEFAULT_CHUNK_SIZE);
+    }
+
+    CatScriptTokenizer(Utf8Source source, int chunkSize) {
+        this((SourceWindow.ChunkReader) source, chunkSize);
+        utf8 = source;
+    }
+
+    public static CatScriptTokenizer mapFile(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new CatScriptTokenizer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static SourceWindow.ChunkReader chunksOf(CharBuffer source) {
+        return (buffer, offset, length) -> {
+            if (!source.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, source.remaining());
+            source.get(buffer, offset, count);
+            return count;
+        };
+    }
+
     private void tokenize() {
+        while (!complete) {
+            scanNext();
+        }
+    }
+
+    // scans at most one token, or the end of the input
+    void scanNext() {
         consumeWhitespace();
-        while (!tokenizationEnd()) {
+        if (tokenizationEnd()) {
+            tokenList.addToken(EOF, null, postion, postion, line, lineOffset);
+            complete = true;
+        } else {
             scanToken();
-            consumeWhitespace();
         }
-        tokenList.addToken(EOF, "<EOF>", postion, postion, line, lineOffset);
     }
 
-    private void scanToken() {
-        if(scanNumber()) {
-            return;
-        }
-        if(scanString()) {
-            return;
-        }
-        if(scanIdentifier()) {
-            return;
-        }
-        scanSyntax();
-    }
-
-    private boolean scanString() {
-        String str = "";
-        if(isQuote(peek())){
-            matchAndConsume('"');
-            int start = postion;
-            while(!isQuote(peek()) && !tokenizationEnd()){
-                char c = takeChar();
-                str += c;
-                if(isQuote(peek())){
-                    if(c == '\\'){
-                        str += takeChar();
-                    }else{
-                        takeChar();
-                        tokenList.addToken(STRING, str, start, postion, line, lineOffset);
-                        return true;
-                    }
-                }
+    boolean isComplete() {
+        return complete;
+    }
+
+    boolean isStreaming() {
+        return window != null;
+    }
+
+    void releaseBefore(int position) {
+        if (window != null) {
+            window.release(position);
+        }
+    }
+
+    public String getLineContent(int line) {
+        if (isStreaming()) {
+            throw new IllegalStateException("Line contents are captured by tokens when streaming");
+        }
+        if (line < 1 || line > lineCount) {
+            throw new IndexOutOfBoundsException("No line " + line);
+        }
+        int start = lineStarts[line - 1];
+        int end = line < lineCount ? lineStarts[line] - 1 : src.length();
+        return src.substring(start, end);
+    }
+
+    public int byteOffset(int position) {
+        if (utf8 == null) {
+            throw new IllegalStateException("Byte offsets are only known for sources given as bytes");
+        }
+        return utf8.byteOffset(position);
+    }
+
+    // the line the given position is on
+    int lineOf(int position) {
+        int low = 0;
+        int high = lineCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (lineStarts[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
             }
-            if(tokenizationEnd() && !isQuote(peek())){
-                tokenList.addToken(ERROR, str, start, postion, line, lineOffset);
-                return true;
-            } else if(start == postion){
-                char c = takeChar();
-                tokenList.addToken(STRING, str, start, postion, line, lineOffset);
-                return true;
-            }else if(!isQuote(peek())){
-                tokenList.addToken(ERROR, str, start, postion, line, lineOffset);
-                return true;
+        }
+        return low + 1;
+    }
+
+    String lineContent(int lineStart) {
+        if (lineStart != cachedLineStart) {
+            int end = lineStart;
+            while (hasCharAt(end) && charAt(end) != '\n') {
+                end++;
             }
-            postion--;
+            cachedLineContent = slice(lineStart, end);
+            cachedLineStart = lineStart;
         }
-        return false;
-        // TODO implement string scanning here!
+        return cachedLineContent;
     }
 
-    private boolean scanIdentifier() {
-        if( isAlpha(peek())) {
-            int start = postion;
-            while (isAlphaNumeric(peek())) {
+    private void scanToken() {
+        tokenStart = postion;
+        tokenLine = line;
+        tokenLineOffset = lineOffset;
+        char c = peek();
+        switch (charClass(c)) {
+            case DIGIT:
+                scanNumber();
+                break;
+            case ALPHA:
+                scanIdentifier();
+                break;
+            case QUOTE:
+                scanString();
+                break;
+            case SINGLE:
                 takeChar();
+                addToken(SINGLE_CHAR_TOKENS[c], tokenStart);
+                break;
+            case OPERATOR:
+                scanOperator();
+                break;
+            default:
+                addToken(ERROR, "<Unexpected Token: [" + takeChar() + "]>", tokenStart);
+        }
+    }
+
+    private void scanString() {
+        int start = postion + 1;
+        int end = start;
+        // single pass over the literal, skipping whatever follows an escape
+        while (hasCharAt(end) && !isQuote(charAt(end))) {
+            if (charAt(end) == '\\' && hasCharAt(end + 1)) {
+                end++;
             }
-            String value = src.substring(start, postion);
-            if (KEYWORDS.containsKey(value)) {
-                tokenList.addToken(KEYWORDS.get(value), value, start, postion, line, lineOffset);
-            } else {
-                tokenList.addToken(IDENTIFIER, value, start, postion, line, lineOffset);
-            }
-            return true;
+            end++;
+        }
+        if (hasCharAt(end)) {
+            String value = capturedSymbol(start, end);
+            advanceTo(end + 1);
+            addToken(STRING, value, start);
         } else {
-            return false;
+            advanceTo(end);
+            addToken(ERROR, slice(start, end), start);
         }
     }
 
-    private boolean scanNumber() {
-        if(isDigit(peek())) {
-            int start = postion;
-            while (isDigit(peek())) {
-                takeChar();
-            }
-            tokenList.addToken(INTEGER, src.substring(start, postion), start, postion, line, lineOffset);
-            return true;
+    private void scanIdentifier() {
+        int start = postion;
+        while (isAlphaNumeric(peek())) {
+            takeChar();
+        }
+        TokenType keyword = keywordAt(start, postion - start);
+        if (keyword != null) {
+            addToken(keyword, start);
         } else {
-            return false;
+            addToken(IDENTIFIER, capturedSymbol(start, postion), start);
         }
     }
 
-    private void scanSyntax() {
-        // TODO - implement rest of syntax scanning
-        //      - implement comments
+    private void scanNumber() {
         int start = postion;
-        if(matchAndConsume('+')) {
-            tokenList.addToken(PLUS, "+", start, postion, line, lineOffset);
-        } else if(matchAndConsume('-')) {
-            tokenList.addToken(MINUS, "-", start, postion, line, lineOffset);
-        } else if(matchAndConsume('/')) {
+        while (isDigit(peek())) {
+            takeChar();
+        }
+        addToken(INTEGER, captured(start, postion), start);
+    }
+
+    // the characters that may start a two character token or a comment
+    private void scanOperator() {
+        int start = postion;
+        char c = takeChar();
+        if (c == '/') {
             if(matchAndConsume('*')){
-                while(!(src.charAt(postion - 1) == '*' && peek() == '/') && !tokenizationEnd()){
-                    //TODO: if newline make sure to update line field
+                while(!(charAt(postion - 1) == '*' && peek() == '/') && !tokenizationEnd()){
                     takeChar();
                 }
                 matchAndConsume('/');
@@ -124,67 +444,82 @@ public class CatScriptTokenizer {
                     takeChar();
                 }
             }else {
-                tokenList.addToken(SLASH, "-", start, postion, line, lineOffset);
-            }
-        } else if(matchAndConsume('=')) {
-            if (matchAndConsume('=')) {
-                tokenList.addToken(EQUAL_EQUAL, "==", start, postion, line, lineOffset);
-            } else {
-                tokenList.addToken(EQUAL, "=", start, postion, line, lineOffset);
-            }
-        } else if(matchAndConsume('(')){
-            tokenList.addToken(LEFT_PAREN, "(", start, postion, line, lineOffset);
-        } else if(matchAndConsume(')')){
-            tokenList.addToken(RIGHT_PAREN, ")", start, postion, line, lineOffset);
-        } else if(matchAndConsume('{')){
-            tokenList.addToken(LEFT_BRACE, "{", start, postion, line, lineOffset);
-        } else if(matchAndConsume('}')){
-            tokenList.addToken(RIGHT_BRACE, "}", start, postion, line, lineOffset);
-        } else if(matchAndConsume('[')){
-            tokenList.addToken(LEFT_BRACKET, "[", start, postion, line, lineOffset);
-        } else if(matchAndConsume(']')){
-            tokenList.addToken(RIGHT_BRACKET, "]", start, postion, line, lineOffset);
-        } else if(matchAndConsume(':')){
-            tokenList.addToken(COLON, ":", start, postion, line, lineOffset);
-        } else if(matchAndConsume(',')){
-            tokenList.addToken(COMMA, ",", start, postion, line, lineOffset);
-        } else if(matchAndConsume('.')){
-            tokenList.addToken(DOT, ".", start, postion, line, lineOffset);
-        } else if(matchAndConsume('*')){
-            tokenList.addToken(STAR, "*", start, postion, line, lineOffset);
-        } else if(matchAndConsume('!')){
-            if(matchAndConsume('=')){
-                tokenList.addToken(BANG_EQUAL, "!=", start, postion, line, lineOffset);
+                addToken(SLASH, start);
             }
-        } else if(matchAndConsume('>')){
+        } else if (c == '=') {
+            addToken(matchAndConsume('=') ? EQUAL_EQUAL : EQUAL, start);
+        } else if (c == '>') {
+            addToken(matchAndConsume('=') ? GREATER_EQUAL : GREATER, start);
+        } else if (c == '<') {
+            addToken(matchAndConsume('=') ? LESS_EQUAL : LESS, start);
+        } else if (c == '!') {
             if(matchAndConsume('=')){
-                tokenList.addToken(GREATER_EQUAL, "<=", start, postion, line, lineOffset);
-            } else {
-                tokenList.addToken(GREATER, "<", start, postion, line, lineOffset);
+                addToken(BANG_EQUAL, start);
             }
-        } else if(matchAndConsume('<')){
-            if(matchAndConsume('=')){
-                tokenList.addToken(LESS_EQUAL, "<=", start, postion, line, lineOffset);
-            } else {
-                tokenList.addToken(LESS, "<", start, postion, line, lineOffset);
+        }
+    }
+
+    // Recognizes keywords directly against the source, by first character and then length, so
+    // that identifiers never need to be copied out to be looked up
+    private TokenType keywordAt(int start, int length) {
+        switch (charAt(start)) {
+            case 'e':
+                return keyword(start, length, "else", ELSE);
+            case 'f':
+                if (length == 3) {
+                    return keyword(start, length, "for", FOR);
+                } else if (length == 5) {
+                    return keyword(start, length, "false", FALSE);
+                } else {
+                    return keyword(start, length, "function", FUNCTION);
+                }
+            case 'i':
+                if (length == 2 && charAt(start + 1) == 'f') {
+                    return IF;
+                } else {
+                    return keyword(start, length, "in", IN);
+                }
+            case 'n':
+                if (length == 3) {
+                    return keyword(start, length, "not", NOT);
+                } else {
+                    return keyword(start, length, "null", NULL);
+                }
+            case 'p':
+                return keyword(start, length, "print", PRINT);
+            case 'r':
+                return keyword(start, length, "return", RETURN);
+            case 't':
+                return keyword(start, length, "true", TRUE);
+            case 'v':
+                return keyword(start, length, "var", VAR);
+            default:
+                return null;
+        }
+    }
+
+    private TokenType keyword(int start, int length, String keyword, TokenType type) {
+        if (length != keyword.length()) {
+            return null;
+        }
+        for (int i = 1; i < length; i++) {
+            if (charAt(start + i) != keyword.charAt(i)) {
+                return null;
             }
-        } else {
-            tokenList.addToken(ERROR, "<Unexpected Token: [" + takeChar() + "]>", start, postion, line, lineOffset);
         }
+        return type;
     }
 
     private void consumeWhitespace() {
-        // TODO update line and lineOffsets
         while (!tokenizationEnd()) {
-            char c = peek();
-            if (c == ' ' || c == '\r' || c == '\t') {
+            byte charClass = charClass(peek());
+            if (charClass == WHITESPACE) {
                 postion++;
                 lineOffset++;
                 continue;
-            } else if (c == '\n') {
+            } else if (charClass == NEWLINE) {
                 postion++;
-                lineOffset = 0;
-                line++;
+                newLine();
                 continue;
             }
             break;
@@ -197,32 +532,106 @@ public class CatScriptTokenizer {
 
     private char peek() {
         if (tokenizationEnd()) return '\0';
-        return src.charAt(postion);
+        return charAt(postion);
+    }
+
+    private boolean hasCharAt(int position) {
+        if (window != null) {
+            return window.has(position);
+        }
+        return position < limit;
+    }
+
+    private char charAt(int position) {
+        if (window != null) {
+            return window.charAt(position);
+        }
+        return src.charAt(position);
+    }
+
+    private String slice(int start, int end) {
+        if (window != null) {
+            return window.slice(start, end);
+        }
+        return src.substring(start, end);
+    }
+
+    // streamed tokens keep their value, since the source they came from is released
+    private String captured(int start, int end) {
+        if (window != null) {
+            return window.slice(start, end);
+        }
+        return null;
     }
 
-    private boolean isAlpha(char c) {
-        return (c >= 'a' && c <= 'z') ||
-                (c >= 'A' && c <= 'Z') ||
-                c == '_';
+    private String capturedSymbol(int start, int end) {
+        if (window != null) {
+            return window.intern(symbols, start, end);
+        }
+        return null;
+    }
+
+    // identifiers and string literals, interned as their values are asked for
+    String symbol(int start, int end) {
+        return symbols.intern(src, start, end);
+    }
+
+    SymbolPool getSymbols() {
+        return symbols;
     }
 
     private boolean isAlphaNumeric(char c) {
-        return isAlpha(c) || isDigit(c);
+        byte charClass = charClass(c);
+        return charClass == ALPHA || charClass == DIGIT;
     }
 
     private boolean isDigit(char c) {
-        return c >= '0' && c <= '9';
+        return charClass(c) == DIGIT;
+    }
+
+    private void addToken(TokenType type, int start) {
+        addToken(type, null, start);
+    }
+
+    private void addToken(TokenType type, String value, int start) {
+        tokenList.addToken(type, value, start, postion, tokenLine, tokenLineOffset + (start - tokenStart));
+    }
+
+    private void advanceTo(int newPosition) {
+        while (postion < newPosition) {
+            takeChar();
+        }
     }
 
     private char takeChar() {
-        char c = src.charAt(postion);
+        char c = charAt(postion);
         postion++;
-        lineOffset++;
+        if (c == '\n') {
+            newLine();
+        } else {
+            lineOffset++;
+        }
         return c;
     }
 
+    // called with the position just past a newline
+    private void newLine() {
+        line++;
+        lineOffset = 0;
+        if (lineStarts != null) {
+            addLineStart(postion);
+        }
+    }
+
+    private void addLineStart(int position) {
+        if (lineCount == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+        }
+        lineStarts[lineCount++] = position;
+    }
+
     private boolean tokenizationEnd() {
-        return postion >= src.length();
+        return !hasCharAt(postion);
     }
 
     public boolean matchAndConsume(char c) {
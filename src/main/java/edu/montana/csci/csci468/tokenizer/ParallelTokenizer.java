@@ -0,0 +1,127 @@
+package edu.montana.csci.csci468.tokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Tokenizes a large source in pieces.  A quick first pass finds newlines that the tokenizer
+// would reach outside of any string or comment, the source is split at some of those, and each
+// piece is tokenized on its own with absolute positions and the line it starts on, interning
+// into the one pool of the whole source.  The pieces are then concatenated into one token list.
+class ParallelTokenizer {
+
+    // sources smaller than two of these are not worth splitting
+    static final int MIN_CHUNK_SIZE = 64 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final String src;
+    private int[] lineStarts = new int[64];
+    private int lineCount = 1;
+    private final List<Integer> splits = new ArrayList<>();
+
+    private ParallelTokenizer(String source) {
+        this.src = source;
+    }
+
+    static CatScriptTokenizer tokenize(String source, ForkJoinPool pool) {
+        return tokenize(source, pool, MIN_CHUNK_SIZE);
+    }
+
+    static CatScriptTokenizer tokenize(String source, ForkJoinPool pool, int minChunkSize) {
+        int chunkCount = Math.min(pool.getParallelism() * CHUNKS_PER_THREAD, source.length() / minChunkSize);
+        if (chunkCount < 2 || pool.getParallelism() < 2) {
+            return new CatScriptTokenizer(source);
+        }
+        ParallelTokenizer splitter = new ParallelTokenizer(source);
+        splitter.findSplits(source.length() / chunkCount);
+
+        CatScriptTokenizer tokenizer = new CatScriptTokenizer(source, splitter.lineStarts, splitter.lineCount);
+        SymbolPool symbols = tokenizer.getSymbols();
+        List<ForkJoinTask<TokenList>> chunks = new ArrayList<>();
+        int start = 0;
+        int startLine = 1;
+        for (int i = 0; i <= splitter.splits.size(); i++) {
+            int end = i < splitter.splits.size() ? splitter.splits.get(i) : source.length();
+            int chunkStart = start;
+            int chunkLine = startLine;
+            chunks.add(pool.submit(() -> new CatScriptTokenizer(source, chunkStart, end, chunkLine, symbols).getTokens()));
+            start = end;
+            startLine = splitter.lineOf(end);
+        }
+
+        TokenList tokens = tokenizer.getTokens();
+        for (int i = 0; i < chunks.size(); i++) {
+            TokenList chunk = chunks.get(i).join();
+            // every chunk ends in an EOF, only the last one is the real end
+            int count = i < chunks.size() - 1 ? chunk.size() - 1 : chunk.size();
+            tokens.appendShifted(chunk, 0, count, 0, 0, 0, 0);
+        }
+        return tokenizer;
+    }
+
+    // Mirrors how the tokenizer scans strings and comments, recording every line start and
+    // splitting at the first safe newline past each multiple of chunkSize
+    private void findSplits(int chunkSize) {
+        int length = src.length();
+        int nextSplit = chunkSize;
+        int i = 0;
+        while (i < length) {
+            char c = src.charAt(i);
+            if (c == '\n') {
+                addLineStart(i + 1);
+                if (i + 1 >= nextSplit && i + 1 < length) {
+                    splits.add(i + 1);
+                    nextSplit = i + 1 + chunkSize;
+                }
+                i++;
+            } else if (c == '"') {
+                i++;
+                while (i < length && src.charAt(i) != '"') {
+                    if (src.charAt(i) == '\\' && i + 1 < length) {
+                        newlineAt(i);
+                        i++;
+                    }
+                    newlineAt(i);
+                    i++;
+                }
+                i++;
+            } else if (c == '/' && i + 1 < length && src.charAt(i + 1) == '/') {
+                // leave the newline ending the comment to the main loop
+                while (i < length && src.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < length && src.charAt(i + 1) == '*') {
+                // like the tokenizer, the * opening the comment can also close it
+                i += 2;
+                while (i < length && !(src.charAt(i - 1) == '*' && src.charAt(i) == '/')) {
+                    newlineAt(i);
+                    i++;
+                }
+                i++;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private void newlineAt(int position) {
+        if (src.charAt(position) == '\n') {
+            addLineStart(position + 1);
+        }
+    }
+
+    private void addLineStart(int position) {
+        if (lineCount == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+        }
+        lineStarts[lineCount++] = position;
+    }
+
+    // the line a split point begins, split points are always line starts
+    private int lineOf(int split) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, split);
+        return index + 1;
+    }
+}
@@ -0,0 +1,79 @@
+package edu.montana.csci.csci468.tokenizer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+// A sliding window over a character stream.  Characters are read in fixed size chunks as the
+// tokenizer asks for them, and characters before the release point are dropped when the window
+// needs room, so memory stays bounded by the chunk size plus the longest line still in use.
+class SourceWindow {
+
+    interface ChunkReader {
+        int read(char[] buffer, int offset, int length) throws IOException;
+    }
+
+    private final ChunkReader reader;
+    private final int chunkSize;
+    private char[] buffer;
+    private int bufferStart = 0;
+    private int bufferLength = 0;
+    private int releasedBefore = 0;
+    private boolean exhausted = false;
+
+    SourceWindow(ChunkReader reader, int chunkSize) {
+        this.reader = reader;
+        this.chunkSize = chunkSize;
+        this.buffer = new char[chunkSize * 2];
+    }
+
+    boolean has(int position) {
+        while (position >= bufferStart + bufferLength && !exhausted) {
+            fill();
+        }
+        return position < bufferStart + bufferLength;
+    }
+
+    char charAt(int position) {
+        return buffer[position - bufferStart];
+    }
+
+    String slice(int start, int end) {
+        has(end - 1);
+        return new String(buffer, start - bufferStart, end - start);
+    }
+
+    String intern(SymbolPool symbols, int start, int end) {
+        has(end - 1);
+        return symbols.intern(buffer, start - bufferStart, end - bufferStart);
+    }
+
+    // characters before this position will not be asked for again
+    void release(int position) {
+        releasedBefore = Math.max(releasedBefore, position);
+    }
+
+    private void fill() {
+        if (bufferLength + chunkSize > buffer.length) {
+            int drop = Math.min(releasedBefore - bufferStart, bufferLength);
+            if (drop > 0) {
+                System.arraycopy(buffer, drop, buffer, 0, bufferLength - drop);
+                bufferStart += drop;
+                bufferLength -= drop;
+            }
+            if (bufferLength + chunkSize > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, bufferLength + chunkSize));
+            }
+        }
+        try {
+            int read = reader.read(buffer, bufferLength, chunkSize);
+            if (read < 0) {
+                exhausted = true;
+            } else {
+                bufferLength += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package edu.montana.csci.csci468.tokenizer;
+
+// Hands out one String per distinct identifier or string literal in a source, so a name
+// that appears thousands of times is only retained once, its hash is computed once, and equality
+// checks against it downstream hit the identity fast path.  Names are looked up straight from
+// the source characters, so a name that has been seen before costs no allocation.
+class SymbolPool {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    // open addressing, table.length is always a power of two
+    private String[] table;
+    private int[] hashes;
+    private int count;
+
+    synchronized String intern(String source, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        int length = end - start;
+        int slot = firstSlot(hash);
+        String symbol;
+        while ((symbol = table[slot]) != null) {
+            if (hashes[slot] == hash && symbol.length() == length && source.regionMatches(start, symbol, 0, length)) {
+                return symbol;
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+        return add(slot, hash, source.substring(start, end));
+    }
+
+    synchronized String intern(char[] source, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source[i];
+        }
+        int length = end - start;
+        int slot = firstSlot(hash);
+        String symbol;
+        while ((symbol = table[slot]) != null) {
+            if (hashes[slot] == hash && symbol.length() == length && matches(source, start, symbol)) {
+                return symbol;
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+        return add(slot, hash, new String(source, start, length));
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    private static boolean matches(char[] source, int start, String symbol) {
+        for (int i = 0; i < symbol.length(); i++) {
+            if (source[start + i] != symbol.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int firstSlot(int hash) {
+        if (table == null) {
+            table = new String[INITIAL_CAPACITY];
+            hashes = new int[INITIAL_CAPACITY];
+        }
+        return (hash ^ (hash >>> 16)) & (table.length - 1);
+    }
+
+    private String add(int slot, int hash, String symbol) {
+        // String caches its hash once computed, which this precomputes for every map it ends up in
+        symbol.hashCode();
+        table[slot] = symbol;
+        hashes[slot] = hash;
+        if (++count * 2 > table.length) {
+            rehash();
+        }
+        return symbol;
+    }
+
+    private void rehash() {
+        String[] oldTable = table;
+        int[] oldHashes = hashes;
+        table = new String[oldTable.length * 2];
+        hashes = new int[oldTable.length * 2];
+        for (int i = 0; i < oldTable.length; i++) {
+            if (oldTable[i] != null) {
+                int slot = firstSlot(oldHashes[i]);
+                while (table[slot] != null) {
+                    slot = (slot + 1) & (table.length - 1);
+                }
+                table[slot] = oldTable[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+}
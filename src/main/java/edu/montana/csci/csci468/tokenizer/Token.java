@@ -8,7 +8,10 @@ public class Token {
     int lineOffset;
     String stringValue;
     TokenType type;
-    private final CatScriptTokenizer tokenizer;
+    private CatScriptTokenizer tokenizer;
+    private TokenList tokenList;
+    private int index;
+    private String lineContent;
 
     public Token(int start, int end, int line, int lineOffset, String stringValue, TokenType type, CatScriptTokenizer tokenizer) {
         this.start = start;
@@ -18,6 +21,42 @@ public class Token {
         this.stringValue = stringValue;
         this.type = type;
         this.tokenizer = tokenizer;
+        this.tokenList = null;
+        this.index = -1;
+    }
+
+    // a token with no source behind it, such as one read back by ProgramSerializer, that keeps
+    // the line it is on for error messages
+    public static Token detached(int start, int end, int line, int lineOffset, String stringValue, TokenType type, String lineContent) {
+        Token token = new Token(start, end, line, lineOffset, stringValue, type, null);
+        token.lineContent = lineContent;
+        return token;
+    }
+
+    // a view of one entry in a token list, the string value is sliced from the source lazily
+    Token(TokenList tokenList, int index) {
+        tokenList.read(this, index);
+        this.tokenizer = tokenList.getTokenizer();
+        this.tokenList = tokenList;
+        this.index = index;
+        if (tokenizer.isStreaming()) {
+            // the source behind a streamed token is released once the parser moves on
+            this.stringValue = tokenList.stringValueAt(index);
+            this.lineContent = tokenizer.lineContent(start - lineOffset);
+        }
+    }
+
+    // Moves a view to the same token in the token list of an edited source, where it is
+    // indexDelta further along.  Views already in that list are left alone, so a view shared by
+    // several parse elements is only moved once.
+    public void moveTo(TokenList tokens, int indexDelta) {
+        if (tokenList == null || tokenList == tokens) {
+            return;
+        }
+        index += indexDelta;
+        tokenList = tokens;
+        tokenizer = tokens.getTokenizer();
+        tokens.read(this, index);
     }
 
     public int getStart() {
@@ -28,6 +67,22 @@ public class Token {
         return end;
     }
 
+    // byte offsets into the source, for tokenizers reading UTF-8 bytes
+    public int getByteStart() {
+        return sourceTokenizer().byteOffset(start);
+    }
+
+    public int getByteEnd() {
+        return sourceTokenizer().byteOffset(end);
+    }
+
+    private CatScriptTokenizer sourceTokenizer() {
+        if (tokenizer == null) {
+            throw new IllegalStateException("Byte offsets are only known for tokens with a source");
+        }
+        return tokenizer;
+    }
+
     public int getLine() {
         return line;
     }
@@ -37,6 +92,9 @@ public class Token {
     }
 
     public String getStringValue() {
+        if (stringValue == null && tokenList != null) {
+            stringValue = tokenList.stringValueAt(index);
+        }
         return stringValue;
     }
 
@@ -46,7 +104,7 @@ public class Token {
 
     @Override
     public String toString() {
-        return "Token(\"" + stringValue + "\"){" +
+        return "Token(\"" + getStringValue() + "\"){" +
                 "type=" + type +
                 ", start=" + start +
                 ", end=" + end +
@@ -56,7 +114,11 @@ public class Token {
     }
 
     public String getLineContent() {
-        String[] lines = tokenizer.src.split("\n");
-        return lines[line - 1];
+        if (lineContent != null) {
+            return lineContent;
+        } else if (tokenizer == null) {
+            return "";
+        }
+        return tokenizer.getLineContent(line);
     }
 }
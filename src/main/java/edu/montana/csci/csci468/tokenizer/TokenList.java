@@ -1,58 +1,353 @@
 package edu.montana.csci.csci468.tokenizer;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-import static edu.montana.csci.csci468.tokenizer.TokenType.EOF;
-import static edu.montana.csci.csci468.tokenizer.TokenType.IDENTIFIER;
+import static edu.montana.csci.csci468.tokenizer.TokenType.*;
 
+// Tokens are stored as parallel primitive arrays rather than as Token objects.  Token objects
+// are only created as views when the parser asks for one, and string values are sliced out of
+// the source on demand.  For a streaming tokenizer the list is filled lazily as tokens are
+// asked for, and tokens the parser is done with can be dropped with discardConsumed().
 public class TokenList implements Iterable<Token> {
 
+    private static final int INITIAL_CAPACITY = 64;
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final String[] LEXEMES = new String[TYPES.length];
+    static {
+        LEXEMES[LEFT_PAREN.ordinal()] = "(";
+        LEXEMES[RIGHT_PAREN.ordinal()] = ")";
+        LEXEMES[LEFT_BRACE.ordinal()] = "{";
+        LEXEMES[RIGHT_BRACE.ordinal()] = "}";
+        LEXEMES[LEFT_BRACKET.ordinal()] = "[";
+        LEXEMES[RIGHT_BRACKET.ordinal()] = "]";
+        LEXEMES[COLON.ordinal()] = ":";
+        LEXEMES[COMMA.ordinal()] = ",";
+        LEXEMES[DOT.ordinal()] = ".";
+        LEXEMES[MINUS.ordinal()] = "-";
+        LEXEMES[PLUS.ordinal()] = "+";
+        LEXEMES[SLASH.ordinal()] = "/";
+        LEXEMES[STAR.ordinal()] = "*";
+        LEXEMES[BANG_EQUAL.ordinal()] = "!=";
+        LEXEMES[EQUAL.ordinal()] = "=";
+        LEXEMES[EQUAL_EQUAL.ordinal()] = "==";
+        LEXEMES[GREATER.ordinal()] = ">";
+        LEXEMES[GREATER_EQUAL.ordinal()] = ">=";
+        LEXEMES[LESS.ordinal()] = "<";
+        LEXEMES[LESS_EQUAL.ordinal()] = "<=";
+        LEXEMES[EOF.ordinal()] = "<EOF>";
+        for (String keyword : KEYWORDS.keySet()) {
+            LEXEMES[KEYWORDS.get(keyword).ordinal()] = keyword;
+        }
+    }
+
     private final CatScriptTokenizer tokenizer;
-    List<Token> tokens = new ArrayList<>();
+    // tokens before base have been discarded, the arrays hold tokens [base, size)
+    private int base = 0;
+    private int size = 0;
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] ends = new int[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    private int[] lineOffsets = new int[INITIAL_CAPACITY];
+    // values that cannot be sliced from the source (error messages, or every value when
+    // streaming), allocated on first use
+    private String[] values;
     int currentToken = 0;
 
+    // the most recently materialized view, so repeated peeks at one token share an object
+    private Token lastView;
+    private int lastViewIndex = -1;
+
     public TokenList(CatScriptTokenizer tokenizer) {
         this.tokenizer = tokenizer;
     }
 
-    void addToken(TokenType eof, String stringValue, int start, int end, int line, int lineOffset) {
-        tokens.add(new Token(start, end, line, lineOffset - (end - start), stringValue, eof, tokenizer));
+    void addToken(TokenType type, String stringValue, int start, int end, int line, int lineOffset) {
+        int slot = size - base;
+        if (slot == types.length) {
+            grow();
+        }
+        types[slot] = (byte) type.ordinal();
+        starts[slot] = start;
+        ends[slot] = end;
+        lines[slot] = line;
+        lineOffsets[slot] = lineOffset;
+        if (stringValue != null) {
+            if (values == null) {
+                values = new String[types.length];
+            }
+            values[slot] = stringValue;
+        }
+        size++;
+    }
+
+    // appends tokens [from, to) of another list, moved by an edit: positions shift by
+    // positionDelta, lines by lineDelta, and offsets on columnLine (an old line number) by
+    // columnDelta
+    void appendShifted(TokenList other, int from, int to, int positionDelta,
+                       int lineDelta, int columnLine, int columnDelta) {
+        int count = to - from;
+        if (count == 0) {
+            return;
+        }
+        int slot = size - base;
+        while (slot + count > types.length) {
+            grow();
+        }
+        int source = other.slot(from);
+        System.arraycopy(other.types, source, types, slot, count);
+        System.arraycopy(other.starts, source, starts, slot, count);
+        System.arraycopy(other.ends, source, ends, slot, count);
+        System.arraycopy(other.lines, source, lines, slot, count);
+        System.arraycopy(other.lineOffsets, source, lineOffsets, slot, count);
+        if (other.values != null) {
+            if (values == null) {
+                values = new String[types.length];
+            }
+            System.arraycopy(other.values, source, values, slot, count);
+        }
+        for (int i = slot; i < slot + count; i++) {
+            starts[i] += positionDelta;
+            ends[i] += positionDelta;
+            if (lines[i] == columnLine) {
+                lineOffsets[i] += columnDelta;
+            }
+            lines[i] += lineDelta;
+        }
+        size += count;
+    }
+
+    // A copy of tokens [from, to) that ends in an EOF standing where the token at to is, keeping
+    // the same indexes, so separate parsers can each work through a range of one list at once
+    public TokenList range(int from, int to) {
+        TokenList range = new TokenList(tokenizer);
+        range.base = from;
+        range.size = from;
+        range.currentToken = from;
+        range.appendShifted(this, from, to, 0, 0, 0, 0);
+        int end = slot(to);
+        range.addToken(EOF, null, starts[end], starts[end], lines[end], lineOffsets[end]);
+        return range;
+    }
+
+    // the number of tokens scanned so far, without scanning any more
+    int scannedCount() {
+        return size;
+    }
+
+    private void grow() {
+        int capacity = Math.max(INITIAL_CAPACITY, types.length * 2);
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        lineOffsets = Arrays.copyOf(lineOffsets, capacity);
+        if (values != null) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    public void discardConsumed() {
+        if (!tokenizer.isStreaming()) {
+            return;
+        }
+        // keep the last consumed token around for lastToken()
+        int keep = Math.max(base, currentToken - 1);
+        int drop = keep - base;
+        if (drop > 0 && keep < size) {
+            int remaining = size - keep;
+            System.arraycopy(types, drop, types, 0, remaining);
+            System.arraycopy(starts, drop, starts, 0, remaining);
+            System.arraycopy(ends, drop, ends, 0, remaining);
+            System.arraycopy(lines, drop, lines, 0, remaining);
+            System.arraycopy(lineOffsets, drop, lineOffsets, 0, remaining);
+            if (values != null) {
+                System.arraycopy(values, drop, values, 0, remaining);
+                Arrays.fill(values, remaining, remaining + drop, null);
+            }
+            base = keep;
+            tokenizer.releaseBefore(starts[0] - lineOffsets[0]);
+        }
+    }
+
+    private boolean available(int index) {
+        while (index >= size && !tokenizer.isComplete()) {
+            tokenizer.scanNext();
+        }
+        return index < size;
+    }
+
+    private int slot(int index) {
+        if (!available(index)) {
+            throw new IndexOutOfBoundsException("No token at " + index);
+        }
+        if (index < base) {
+            throw new IllegalStateException("Token " + index + " has been discarded");
+        }
+        return index - base;
+    }
+
+    //===============================================================
+    // Indexed access
+    //===============================================================
+
+    public int size() {
+        available(Integer.MAX_VALUE);
+        return size;
+    }
+
+    // the slot is found before an array is read, finding it can scan more tokens and grow them
+    public TokenType typeAt(int index) {
+        int slot = slot(index);
+        return TYPES[types[slot]];
+    }
+
+    public int startAt(int index) {
+        int slot = slot(index);
+        return starts[slot];
+    }
+
+    public int endAt(int index) {
+        int slot = slot(index);
+        return ends[slot];
+    }
+
+    public int lineAt(int index) {
+        int slot = slot(index);
+        return lines[slot];
+    }
+
+    public int lineOffsetAt(int index) {
+        int slot = slot(index);
+        return lineOffsets[slot];
+    }
+
+    public String stringValueAt(int index) {
+        int slot = slot(index);
+        if (values != null && values[slot] != null) {
+            return values[slot];
+        }
+        String lexeme = LEXEMES[types[slot]];
+        if (lexeme != null) {
+            return lexeme;
+        } else if (types[slot] == STRING.ordinal()) {
+            // the end of a string token includes its closing quote
+            return tokenizer.symbol(starts[slot], ends[slot] - 1);
+        } else if (types[slot] == IDENTIFIER.ordinal()) {
+            return tokenizer.symbol(starts[slot], ends[slot]);
+        } else {
+            return tokenizer.src.substring(starts[slot], ends[slot]);
+        }
+    }
+
+    // fills in the fields of a view of a token
+    void read(Token token, int index) {
+        int slot = slot(index);
+        token.start = starts[slot];
+        token.end = ends[slot];
+        token.line = lines[slot];
+        token.lineOffset = lineOffsets[slot];
+        token.type = TYPES[types[slot]];
+    }
+
+    public Token tokenAt(int index) {
+        if (index != lastViewIndex) {
+            lastView = new Token(this, index);
+            lastViewIndex = index;
+        }
+        return lastView;
+    }
+
+    CatScriptTokenizer getTokenizer() {
+        return tokenizer;
+    }
+
+    // the source the tokens were scanned from, or null if it was streamed
+    public String getSource() {
+        return tokenizer.isStreaming() ? null : tokenizer.src;
     }
 
+    //===============================================================
+    // Parser API
+    //===============================================================
+
     public Token getCurrentToken() {
-        return tokens.get(currentToken);
+        return tokenAt(currentToken);
+    }
+
+    public TokenType getCurrentType() {
+        int slot = slot(currentToken);
+        return TYPES[types[slot]];
+    }
+
+    public int getCurrentIndex() {
+        return currentToken;
+    }
+
+    public void setCurrentIndex(int index) {
+        currentToken = index;
     }
 
     public Token consumeToken() {
-        return tokens.get(currentToken++);
+        return tokenAt(currentToken++);
     }
 
-    public boolean matchAndConsume(TokenType... type) {
+    public boolean matchAndConsume(TokenType type) {
         if (match(type)) {
-            consumeToken();
+            // no view is needed for a token nobody asked for
+            currentToken++;
             return true;
         } else {
             return false;
         }
     }
 
-    public boolean match(String identifier) {
-        if (getCurrentToken().getType().equals(IDENTIFIER) &&
-            getCurrentToken().getStringValue().equals(identifier)) {
+    public boolean matchAndConsume(TokenType... type) {
+        if (match(type)) {
+            currentToken++;
             return true;
         } else {
             return false;
         }
     }
 
+    public boolean match(String identifier) {
+        int slot = slot(currentToken);
+        if (types[slot] != IDENTIFIER.ordinal()) {
+            return false;
+        } else if (values != null && values[slot] != null) {
+            return values[slot].equals(identifier);
+        } else {
+            int start = starts[slot];
+            int length = ends[slot] - start;
+            return length == identifier.length() &&
+                    tokenizer.src.regionMatches(start, identifier, 0, length);
+        }
+    }
+
+    public boolean match(TokenType type) {
+        int slot = slot(currentToken);
+        return types[slot] == type.ordinal();
+    }
+
+    // tokenClass is a set of types built with TokenType.mask()
+    public boolean match(long tokenClass) {
+        int slot = slot(currentToken);
+        return (tokenClass & (1L << types[slot])) != 0;
+    }
+
     public boolean match(TokenType... type) {
+        int slot = slot(currentToken);
+        byte current = types[slot];
         for (TokenType tokenType : type) {
-            if (getCurrentToken().getType().equals(tokenType)) {
+            if (current == tokenType.ordinal()) {
                 return true;
             }
         }
@@ -60,45 +355,64 @@ public class TokenList implements Iterable<Token> {
     }
 
     public void reset() {
+        if (base > 0) {
+            throw new IllegalStateException("Cannot reset a token list that has discarded tokens");
+        }
         currentToken = 0;
     }
 
     public boolean hasMoreTokens() {
-        return currentToken < tokens.size() - 1;
+        return available(currentToken) && currentToken >= base && types[currentToken - base] != EOF.ordinal();
     }
 
     public Token lastToken() {
-        return tokens.get(Math.max(0, currentToken - 1));
+        return tokenAt(Math.max(0, currentToken - 1));
     }
 
     public Stream<Token> stream() {
-        return tokens.stream();
+        return IntStream.range(base, size()).mapToObj(this::tokenAt);
     }
 
     @Override
     public Iterator<Token> iterator() {
-        return tokens.iterator();
+        return new Iterator<>() {
+            int next = base;
+
+            @Override
+            public boolean hasNext() {
+                return available(next);
+            }
+
+            @Override
+            public Token next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return tokenAt(next++);
+            }
+        };
     }
 
     @Override
-    public void forEach(Consumer action) {
-        tokens.forEach(action);
+    public void forEach(Consumer<? super Token> action) {
+        for (int i = base; available(i); i++) {
+            action.accept(tokenAt(i));
+        }
     }
 
     @Override
     public Spliterator<Token> spliterator() {
-        return tokens.spliterator();
+        return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL);
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < tokens.size(); i++) {
-            Token token = tokens.get(i);
+        for (int i = base; i < size; i++) {
             if (i == currentToken) {
                 sb.append("-->[");
             }
-            sb.append(token.getStringValue());
+            sb.append(stringValueAt(i));
             if (i == currentToken) {
                 sb.append("]<--");
             }
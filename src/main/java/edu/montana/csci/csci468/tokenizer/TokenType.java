@@ -40,5 +40,12 @@ public enum TokenType {
         KEYWORDS.put("var", VAR);
     }
 
-
+    // a set of token types as a bit mask, for TokenList.match(long)
+    public static long mask(TokenType... types) {
+        long mask = 0;
+        for (TokenType type : types) {
+            mask |= 1L << type.ordinal();
+        }
+        return mask;
+    }
 }
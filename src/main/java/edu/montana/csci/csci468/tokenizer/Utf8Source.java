@@ -0,0 +1,132 @@
+package edu.montana.csci.csci468.tokenizer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+import java.util.Arrays;
+
+// Reads UTF-8 bytes straight into a tokenizer's source window.  ASCII, which is all of CatScript
+// outside of string literals and comments, is widened byte for byte, only multibyte sequences are
+// decoded, and where they occur is recorded so character positions can be mapped back to byte
+// offsets.
+class Utf8Source implements SourceWindow.ChunkReader {
+
+    private final ByteBuffer bytes;
+    private final int firstByte;
+    private int charPosition = 0;
+    // the low half of a surrogate pair that did not fit in the last chunk
+    private char pendingLowSurrogate = 0;
+
+    // from charStarts[i] on, byte offsets are ahead of char positions by extraBytes[i]
+    private int[] charStarts = new int[16];
+    private int[] extraBytes = new int[16];
+    private int shifts = 0;
+    private int extra = 0;
+
+    Utf8Source(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.firstByte = bytes.position();
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws MalformedInputException {
+        int position = bytes.position();
+        int limit = bytes.limit();
+        if (position == limit && pendingLowSurrogate == 0) {
+            return -1;
+        }
+        int next = offset;
+        int end = offset + length;
+        if (pendingLowSurrogate != 0) {
+            buffer[next++] = pendingLowSurrogate;
+            pendingLowSurrogate = 0;
+        }
+        while (next < end && position < limit) {
+            byte b = bytes.get(position);
+            if (b >= 0) {
+                buffer[next++] = (char) b;
+                position++;
+                continue;
+            }
+            int continuations;
+            int codePoint;
+            if ((b & 0xE0) == 0xC0) {
+                continuations = 1;
+                codePoint = b & 0x1F;
+            } else if ((b & 0xF0) == 0xE0) {
+                continuations = 2;
+                codePoint = b & 0x0F;
+            } else if ((b & 0xF8) == 0xF0) {
+                continuations = 3;
+                codePoint = b & 0x07;
+            } else {
+                throw malformed(position);
+            }
+            if (position + continuations >= limit) {
+                throw malformed(position);
+            }
+            for (int i = 1; i <= continuations; i++) {
+                byte continuation = bytes.get(position + i);
+                if ((continuation & 0xC0) != 0x80) {
+                    throw malformed(position);
+                }
+                codePoint = (codePoint << 6) | (continuation & 0x3F);
+            }
+            if (continuations == 1 && codePoint < 0x80 ||
+                    continuations == 2 && (codePoint < 0x800 || Character.isSurrogate((char) codePoint)) ||
+                    continuations == 3 && (codePoint < 0x10000 || codePoint > Character.MAX_CODE_POINT)) {
+                throw malformed(position);
+            }
+            position += continuations + 1;
+            if (continuations < 3) {
+                buffer[next++] = (char) codePoint;
+                shift(charPosition + (next - offset), continuations);
+            } else {
+                buffer[next++] = Character.highSurrogate(codePoint);
+                char low = Character.lowSurrogate(codePoint);
+                if (next < end) {
+                    buffer[next++] = low;
+                } else {
+                    pendingLowSurrogate = low;
+                }
+                shift(charPosition + (next - offset) + (pendingLowSurrogate != 0 ? 1 : 0), 2);
+            }
+        }
+        bytes.position(position);
+        charPosition += next - offset;
+        return next - offset;
+    }
+
+    // the offset of a char position from the start of the bytes
+    int byteOffset(int position) {
+        int low = 0;
+        int high = shifts - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (charStarts[mid] <= position) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return position + (found < 0 ? 0 : extraBytes[found]);
+    }
+
+    private void shift(int charStart, int bytesAhead) {
+        if (shifts == charStarts.length) {
+            charStarts = Arrays.copyOf(charStarts, shifts * 2);
+            extraBytes = Arrays.copyOf(extraBytes, shifts * 2);
+        }
+        extra += bytesAhead;
+        charStarts[shifts] = charStart;
+        extraBytes[shifts] = extra;
+        shifts++;
+    }
+
+    private MalformedInputException malformed(int position) {
+        MalformedInputException exception = new MalformedInputException(1);
+        exception.initCause(new IllegalArgumentException("Malformed UTF-8 at byte " + (position - firstByte)));
+        return exception;
+    }
+}
@@ -0,0 +1,39 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatScriptParser;
+import edu.montana.csci.csci468.parser.ParseElement;
+import edu.montana.csci.csci468.tokenizer.CatScriptTokenizer;
+
+import java.util.ArrayDeque;
+
+// Retained bytes per AST node for a large program, not counting the token list it was parsed
+// from.  The token views each node holds on to are counted as part of the node.
+public class AstMemoryBenchmark {
+
+    public static void main(String[] args) {
+        String source = BenchSources.demoScript(4_000_000);
+        int nodes = countNodes(new CatScriptParser().parse(source));
+
+        long tokenBytes = Bench.retainedBytes(() -> new CatScriptTokenizer(source).getTokens());
+        long programBytes = Bench.retainedBytes(() -> new CatScriptParser().parse(source));
+
+        System.out.printf("%,d AST nodes from %s of source%n", nodes, Bench.humanSize(source.length()));
+        System.out.printf("tokens:   %,12d bytes%n", tokenBytes);
+        System.out.printf("AST:      %,12d bytes  %6.1f bytes/node%n", programBytes - tokenBytes,
+                (double) (programBytes - tokenBytes) / nodes);
+    }
+
+    private static int countNodes(ParseElement root) {
+        int count = 0;
+        ArrayDeque<ParseElement> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            ParseElement element = pending.pop();
+            count++;
+            for (ParseElement child : element.getChildren()) {
+                pending.push(child);
+            }
+        }
+        return count;
+    }
+}
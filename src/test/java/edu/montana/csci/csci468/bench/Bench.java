@@ -0,0 +1,66 @@
+package edu.montana.csci.csci468.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+// Minimal timing helpers for the front end benchmarks in this package.  These are plain
+// main() programs rather than tests so that surefire never picks them up.
+public class Bench {
+
+    public static final int WARMUP_RUNS = 5;
+    public static final int MEASURED_RUNS = 10;
+
+    // keeps measured allocations reachable until the heap has been sampled
+    private static Object sink;
+
+    public static long bestNanos(Runnable work) {
+        return bestNanos(work, WARMUP_RUNS, MEASURED_RUNS);
+    }
+
+    public static long bestNanos(Runnable work, int warmupRuns, int measuredRuns) {
+        for (int i = 0; i < warmupRuns; i++) {
+            work.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < measuredRuns; i++) {
+            long start = System.nanoTime();
+            work.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    public static long allocatedBytes(Runnable work) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        work.run();
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    public static long retainedBytes(Supplier<Object> allocation) {
+        long before = usedHeap();
+        sink = allocation.get();
+        long after = usedHeap();
+        sink = null;
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static String humanSize(long chars) {
+        if (chars >= 1_000_000) {
+            return (chars / 1_000_000) + " MB";
+        } else if (chars >= 1_000) {
+            return (chars / 1_000) + " KB";
+        } else {
+            return chars + " B";
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package edu.montana.csci.csci468.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+// Source text for the benchmarks, built by replicating the demo script
+public class BenchSources {
+
+    public static String demoScript() {
+        try (InputStream stream = BenchSources.class.getResourceAsStream("/scripts/demo.cat")) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // the demo script repeated until it is at least the given number of chars, with the
+    // variable and function names made unique per copy so the result still verifies
+    public static String demoScript(int minimumLength) {
+        String demo = demoScript();
+        StringBuilder sb = new StringBuilder(minimumLength + demo.length());
+        for (int copy = 0; sb.length() < minimumLength; copy++) {
+            String suffix = "_" + copy;
+            sb.append(demo.replace("var y ", "var y" + suffix + " ")
+                    .replace("var x ", "var x" + suffix + " ")
+                    .replace("var lst ", "var lst" + suffix + " ")
+                    .replace("print(y)", "print(y" + suffix + ")")
+                    .replace("( x > 10 )", "( x" + suffix + " > 10 )")
+                    .replace("print(x)", "print(x" + suffix + ")")
+                    .replace("in lst", "in lst" + suffix)
+                    .replace("foo", "foo" + suffix)
+                    .replace("(x, y)", "(x" + suffix + ", y" + suffix + ")"));
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.tokenizer.CatScriptTokenizer;
+import edu.montana.csci.csci468.tokenizer.TokenList;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+// Walking the tokens of the demo script replicated to 16 MB of UTF-8 the way the parser does,
+// decoded to a String first and read directly from a direct ByteBuffer, dropping consumed tokens
+public class ByteBufferTokenizerBenchmark {
+
+    public static void main(String[] args) {
+        byte[] bytes = BenchSources.demoScript(16_000_000).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        report("decode to String", () -> new CatScriptTokenizer(new String(bytes, StandardCharsets.UTF_8)), bytes.length);
+        report("from ByteBuffer", () -> new CatScriptTokenizer(direct), bytes.length);
+    }
+
+    private static TokenList walk(TokenList tokens) {
+        while (tokens.hasMoreTokens()) {
+            tokens.consumeToken();
+            tokens.discardConsumed();
+        }
+        return tokens;
+    }
+
+    // retained is what is still reachable from the token list once every token is consumed
+    private static void report(String name, Supplier<CatScriptTokenizer> tokenizer, int length) {
+        long nanos = Bench.bestNanos(() -> walk(tokenizer.get().getTokens()), 5, 10);
+        long retained = Bench.retainedBytes(() -> walk(tokenizer.get().getTokens()));
+        System.out.printf("%-17s %7.2f ms, %s retained for %s of source%n", name, nanos / 1e6,
+                Bench.humanSize(retained), Bench.humanSize(length));
+    }
+}
@@ -0,0 +1,33 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatScriptParser;
+import edu.montana.csci.csci468.parser.ParseError;
+import edu.montana.csci.csci468.parser.ParseErrorException;
+import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
+
+import java.util.List;
+
+// Formatting every error of a 20k line script where every line has an error
+public class ErrorReportingBenchmark {
+
+    public static void main(String[] args) {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            source.append("var x").append(i).append(" : int = true\n");
+        }
+        CatScriptProgram program = new CatScriptParser().parse(source.toString());
+        List<ParseError> errors;
+        try {
+            program.verify();
+            throw new IllegalStateException("expected errors");
+        } catch (ParseErrorException e) {
+            errors = e.getErrors();
+        }
+        long nanos = Bench.bestNanos(() -> {
+            for (ParseError error : errors) {
+                error.getFullMessage();
+            }
+        }, 1, 3);
+        System.out.printf("%,d errors formatted in %.2f ms%n", errors.size(), nanos / 1e6);
+    }
+}
@@ -0,0 +1,31 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatScriptParser;
+
+// Parsing long arithmetic expressions mixing every precedence level, and long list literals.
+// Most of the work is allocation, run with a large fixed heap (-Xms2g -Xmx2g) to keep GC noise
+// out of the timings
+public class ExpressionParseBenchmark {
+
+    public static void main(String[] args) {
+        StringBuilder arithmetic = new StringBuilder("1");
+        String[] operators = {" + ", " * ", " - ", " / "};
+        for (int i = 0; i < 100_000; i++) {
+            arithmetic.append(operators[i % operators.length]).append(i % 7 == 0 ? "(2 * -3)" : String.valueOf(i));
+        }
+        arithmetic.append(" < 10 == true");
+        StringBuilder list = new StringBuilder("[");
+        for (int i = 0; i < 200_000; i++) {
+            list.append(i == 0 ? "" : ", ").append(i);
+        }
+        list.append("]");
+        report("arithmetic", arithmetic.toString());
+        report("list literal", list.toString());
+    }
+
+    private static void report(String name, String source) {
+        long nanos = Bench.bestNanos(() -> new CatScriptParser().parse(source), 20, 30);
+        long allocated = Bench.allocatedBytes(() -> new CatScriptParser().parse(source));
+        System.out.printf("%-13s %7.2f ms, %s allocated%n", name, nanos / 1e6, Bench.humanSize(allocated));
+    }
+}
@@ -0,0 +1,101 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatScriptParser;
+import edu.montana.csci.csci468.parser.ParseErrorException;
+import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
+import edu.montana.csci.csci468.tokenizer.CatScriptTokenizer;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+// Throughput, allocation and worst case latency of tokenizing, parsing and verifying programs
+// from ProgramGenerator.  Each table grows one dimension of the programs; ns/char that keeps
+// climbing down a table is a super-linear cost in that dimension.
+public class FrontEndStressBenchmark {
+
+    public static void main(String[] args) {
+        String warmup = new ProgramGenerator(0).setFunctions(800).generate();
+        for (int i = 0; i < 20; i++) {
+            verify(new CatScriptParser().parse(warmup));
+        }
+        System.out.println("functions");
+        scale(new int[]{100, 200, 400, 800, 1600},
+                n -> new ProgramGenerator(n).setFunctions(n).generate());
+        System.out.println("block depth");
+        scale(new int[]{4, 16, 64, 256},
+                n -> new ProgramGenerator(n).setFunctions(20).setDepth(n).generate());
+        System.out.println("expression depth");
+        scale(new int[]{4, 16, 64, 256},
+                n -> new ProgramGenerator(n).setFunctions(50).setExpressionDepth(n).generate());
+        System.out.println("list width");
+        scale(new int[]{4, 16, 64, 256},
+                n -> new ProgramGenerator(n).setFunctions(50).setListWidth(n).generate());
+        System.out.println("invalid, mutations per program");
+        scale(new int[]{1, 10, 100, 1000},
+                n -> new ProgramGenerator(n).setFunctions(400).generateInvalid(n));
+        latency(2_000);
+    }
+
+    private static void scale(int[] sizes, IntFunction<String> generator) {
+        System.out.printf("  %6s %9s | %-20s | %-20s | %-20s%n", "n", "size",
+                "tokenize ns/char B/c", "parse ns/char B/c", "verify ns/char B/c");
+        double first = 0;
+        double last = 0;
+        for (int n : sizes) {
+            String source = generator.apply(n);
+            long tokenize = Bench.bestNanos(() -> new CatScriptTokenizer(source).getTokens());
+            long tokenizeBytes = Bench.allocatedBytes(() -> new CatScriptTokenizer(source).getTokens());
+            long parse = Bench.bestNanos(() -> new CatScriptParser().parse(source));
+            long parseBytes = Bench.allocatedBytes(() -> new CatScriptParser().parse(source));
+            CatScriptProgram program = new CatScriptParser().parse(source);
+            long verify = Bench.bestNanos(() -> verify(program));
+            long verifyBytes = Bench.allocatedBytes(() -> verify(program));
+            double total = (double) (parse + verify) / source.length();
+            if (first == 0) {
+                first = total;
+            }
+            last = total;
+            System.out.printf("  %6d %9s | %8.1f %10.1f | %8.1f %10.1f | %8.1f %10.1f%n", n,
+                    Bench.humanSize(source.length()),
+                    (double) tokenize / source.length(), (double) tokenizeBytes / source.length(),
+                    (double) parse / source.length(), (double) parseBytes / source.length(),
+                    (double) verify / source.length(), (double) verifyBytes / source.length());
+        }
+        System.out.printf("  parse + verify ns/char grew %.2fx%s%n", last / first,
+                last / first > 2 ? "  <-- super-linear?" : "");
+    }
+
+    // parse + verify of many small programs, half of them invalid, each timed on its own
+    private static void latency(int programs) {
+        String[] sources = new String[programs];
+        for (int i = 0; i < programs; i++) {
+            ProgramGenerator generator = new ProgramGenerator(i).setFunctions(1 + i % 20).setDepth(i % 6);
+            sources[i] = i % 2 == 0 ? generator.generate() : generator.generateInvalid(1 + i % 10);
+        }
+        for (int warmup = 0; warmup < Bench.WARMUP_RUNS; warmup++) {
+            for (String source : sources) {
+                verify(new CatScriptParser().parse(source));
+            }
+        }
+        long[] nanos = new long[programs];
+        double worstPerChar = 0;
+        for (int i = 0; i < programs; i++) {
+            long start = System.nanoTime();
+            verify(new CatScriptParser().parse(sources[i]));
+            nanos[i] = System.nanoTime() - start;
+            worstPerChar = Math.max(worstPerChar, (double) nanos[i] / sources[i].length());
+        }
+        Arrays.sort(nanos);
+        System.out.printf("latency over %,d programs: p50 %.1f us, p99 %.1f us, max %.1f us, worst %.1f ns/char%n",
+                programs, nanos[programs / 2] / 1e3, nanos[programs * 99 / 100] / 1e3, nanos[programs - 1] / 1e3,
+                worstPerChar);
+    }
+
+    private static void verify(CatScriptProgram program) {
+        try {
+            program.verify();
+        } catch (ParseErrorException e) {
+            // invalid programs are expected to have errors
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatScriptParser;
+import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
+
+// Keystrokes in the middle of a 20,000 line script, each parsed from scratch and reparsed from
+// the previous keystroke's program
+public class IncrementalParseBenchmark {
+
+    private static CatScriptProgram program;
+    private static int keystroke = 0;
+
+    public static void main(String[] args) {
+        String source = BenchSources.demoScript(1);
+        while (source.split("\n", -1).length < 20_000) {
+            source = BenchSources.demoScript(source.length() + 1);
+        }
+        int offset = source.indexOf("var x_", source.length() / 2);
+        offset = source.indexOf('=', offset) + 2;
+        // typing a digit and deleting it again
+        String[] versions = {source.substring(0, offset) + "1" + source.substring(offset), source};
+        program = new CatScriptParser().parse(source);
+
+        long fresh = Bench.bestNanos(() -> new CatScriptParser().parse(versions[keystroke++ % 2]), 20, 30);
+        long incremental = Bench.bestNanos(() ->
+                program = new CatScriptParser().reparse(program, versions[keystroke++ % 2]), 20, 30);
+        System.out.printf("%,d lines, %s%n", source.split("\n", -1).length, Bench.humanSize(source.length()));
+        System.out.printf("full parse:   %7.2f ms per keystroke%n", fresh / 1e6);
+        System.out.printf("reparse:      %7.2f ms per keystroke%n", incremental / 1e6);
+    }
+}
@@ -0,0 +1,22 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.tokenizer.CatScriptTokenizer;
+import edu.montana.csci.csci468.tokenizer.TokenList;
+
+// A one character edit in the middle of a 1 MB script, re-tokenized from scratch and incrementally
+public class IncrementalTokenizeBenchmark {
+
+    public static void main(String[] args) {
+        String source = BenchSources.demoScript(1_000_000);
+        int offset = source.indexOf('\n', source.length() / 2);
+        String edited = source.substring(0, offset) + "x" + source.substring(offset);
+        TokenList previous = new CatScriptTokenizer(source).getTokens();
+
+        long fresh = Bench.bestNanos(() -> new CatScriptTokenizer(edited), 20, 30);
+        long incremental = Bench.bestNanos(() -> new CatScriptTokenizer(previous, offset, 0, "x"), 20, 30);
+        long diffed = Bench.bestNanos(() -> CatScriptTokenizer.retokenize(previous, edited), 20, 30);
+        System.out.printf("full re-tokenize:        %.2f ms%n", fresh / 1e6);
+        System.out.printf("incremental:             %.2f ms%n", incremental / 1e6);
+        System.out.printf("incremental, diffed:     %.2f ms%n", diffed / 1e6);
+    }
+}
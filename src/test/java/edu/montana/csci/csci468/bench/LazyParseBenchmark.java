@@ -0,0 +1,41 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatScriptParser;
+import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
+import edu.montana.csci.csci468.parser.statements.FunctionDefinitionStatement;
+
+// Parsing, and parsing and verifying, a large library of functions of which a run calls only a
+// few, with function bodies parsed eagerly and lazily
+public class LazyParseBenchmark {
+
+    public static void main(String[] args) {
+        for (int functions : new int[]{200, 2_000}) {
+            String source = new ProgramGenerator(functions).setFunctions(functions).setTopLevelStatements(5)
+                    .setNestedCalls(false).generate();
+            System.out.printf("%,d functions, %s of source%n", functions, Bench.humanSize(source.length()));
+            long eagerParse = Bench.bestNanos(() -> parser(false).parse(source));
+            long lazyParse = Bench.bestNanos(() -> parser(true).parse(source));
+            long eagerVerify = Bench.bestNanos(() -> parser(false).parse(source).verify());
+            long lazyVerify = Bench.bestNanos(() -> parser(true).parse(source).verify());
+            CatScriptProgram program = parser(true).parse(source);
+            program.verify();
+            System.out.printf("  parse:          eager %8.3f ms  lazy %8.3f ms  %.2fx%n",
+                    eagerParse / 1e6, lazyParse / 1e6, (double) eagerParse / lazyParse);
+            System.out.printf("  parse + verify: eager %8.3f ms  lazy %8.3f ms  %.2fx  (%d bodies parsed)%n",
+                    eagerVerify / 1e6, lazyVerify / 1e6, (double) eagerVerify / lazyVerify, parsedBodies(program));
+        }
+    }
+
+    private static CatScriptParser parser(boolean lazy) {
+        CatScriptParser parser = new CatScriptParser();
+        parser.setLazyFunctionBodies(lazy);
+        return parser;
+    }
+
+    private static long parsedBodies(CatScriptProgram program) {
+        return program.getStatements().stream()
+                .filter(statement -> statement instanceof FunctionDefinitionStatement)
+                .filter(function -> !((FunctionDefinitionStatement) function).isBodyDeferred())
+                .count();
+    }
+}
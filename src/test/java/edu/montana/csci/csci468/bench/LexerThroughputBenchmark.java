@@ -0,0 +1,17 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.tokenizer.CatScriptTokenizer;
+
+// Tokens per second over the demo script replicated to 1 MB
+public class LexerThroughputBenchmark {
+
+    public static void main(String[] args) {
+        String source = BenchSources.demoScript(1_000_000);
+        int tokenCount = new CatScriptTokenizer(source).getTokens().size();
+        long nanos = Bench.bestNanos(() -> new CatScriptTokenizer(source), 20, 30);
+        long allocated = Bench.allocatedBytes(() -> new CatScriptTokenizer(source));
+        System.out.printf("%,d tokens from %s in %.2f ms%n", tokenCount, Bench.humanSize(source.length()), nanos / 1e6);
+        System.out.printf("%,.0f tokens/s, %.1f bytes allocated per token%n",
+                tokenCount / (nanos / 1e9), (double) allocated / tokenCount);
+    }
+}
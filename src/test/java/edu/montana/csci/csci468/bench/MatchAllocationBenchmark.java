@@ -0,0 +1,64 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.tokenizer.CatScriptTokenizer;
+import edu.montana.csci.csci468.tokenizer.TokenList;
+import edu.montana.csci.csci468.tokenizer.TokenType;
+
+import static edu.montana.csci.csci468.tokenizer.TokenType.*;
+
+// Garbage from the lookahead the parser's precedence chain does at every token, with varargs
+// matches and with token class masks, over the demo script replicated to 1 MB
+public class MatchAllocationBenchmark {
+
+    private static final long EQUALITY = TokenType.mask(EQUAL_EQUAL, BANG_EQUAL);
+    private static final long COMPARISON = TokenType.mask(LESS, LESS_EQUAL, GREATER, GREATER_EQUAL);
+    private static final long ADDITIVE = TokenType.mask(PLUS, MINUS);
+    private static final long FACTOR = TokenType.mask(SLASH, STAR);
+    private static final long UNARY = TokenType.mask(MINUS, NOT);
+
+    static int matched;
+
+    public static void main(String[] args) {
+        String source = BenchSources.demoScript(1_000_000);
+        TokenList tokens = new CatScriptTokenizer(source).getTokens();
+        int tokenCount = tokens.size();
+        Runnable varargs = () -> {
+            int count = 0;
+            tokens.reset();
+            for (int i = 0; i < tokenCount; i++) {
+                if (tokens.match(EQUAL_EQUAL, BANG_EQUAL)) count++;
+                if (tokens.match(LESS, LESS_EQUAL, GREATER, GREATER_EQUAL)) count++;
+                if (tokens.match(PLUS, MINUS)) count++;
+                if (tokens.match(SLASH, STAR)) count++;
+                if (tokens.match(MINUS, NOT)) count++;
+                tokens.matchAndConsume(tokens.typeAt(i));
+            }
+            matched = count;
+        };
+        Runnable masks = () -> {
+            int count = 0;
+            tokens.reset();
+            for (int i = 0; i < tokenCount; i++) {
+                if (tokens.match(EQUALITY)) count++;
+                if (tokens.match(COMPARISON)) count++;
+                if (tokens.match(ADDITIVE)) count++;
+                if (tokens.match(FACTOR)) count++;
+                if (tokens.match(UNARY)) count++;
+                tokens.matchAndConsume(tokens.typeAt(i));
+            }
+            matched = count;
+        };
+        report("varargs", varargs, tokenCount);
+        report("masks", masks, tokenCount);
+    }
+
+    // allocation is measured before and after warming up, since escape analysis can remove the
+    // varargs arrays once the loop is compiled, but only where the call is inlined
+    private static void report(String name, Runnable lookahead, int tokenCount) {
+        long cold = Bench.allocatedBytes(lookahead);
+        long nanos = Bench.bestNanos(lookahead, 20, 30);
+        long warm = Bench.allocatedBytes(lookahead);
+        System.out.printf("%-8s %6.2f ms, %.2f bytes allocated per token cold, %.2f warm%n", name, nanos / 1e6,
+                (double) cold / tokenCount, (double) warm / tokenCount);
+    }
+}
@@ -0,0 +1,37 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatScriptParser;
+
+import java.util.concurrent.ForkJoinPool;
+
+// Parse time for a script of 4,000 independent function definitions, sequentially and on 1..N
+// threads
+public class ParallelParseBenchmark {
+
+    public static void main(String[] args) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 4_000; i++) {
+            sb.append("function f").append(i).append("(a : int, b : list<int>) : int {\n")
+                    .append("  var total = 0\n")
+                    .append("  for (x in b) {\n")
+                    .append("    if (x > a * 2 - 1) { total = total + x } else { total = total - (x / 2) }\n")
+                    .append("  }\n")
+                    .append("  print([a, total, -a, \"f").append(i).append("\"])\n")
+                    .append("  return total\n")
+                    .append("}\n");
+        }
+        sb.append("print(f0(1, [1, 2, 3]))\n");
+        String source = sb.toString();
+
+        long sequential = Bench.bestNanos(() -> new CatScriptParser().parse(source), 20, 20);
+        System.out.printf("%s, 4,000 functions%n", Bench.humanSize(source.length()));
+        System.out.printf("sequential:  %7.2f ms%n", sequential / 1e6);
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= Math.max(cores, 2); threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long nanos = Bench.bestNanos(() -> new CatScriptParser().parseInParallel(source, pool), 20, 20);
+            System.out.printf("%2d threads:  %7.2f ms  %.2fx%n", threads, nanos / 1e6, (double) sequential / nanos);
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.tokenizer.CatScriptTokenizer;
+
+import java.util.concurrent.ForkJoinPool;
+
+// Tokens per second over the demo script replicated to 16 MB, sequentially and on 1..N threads
+public class ParallelTokenizerBenchmark {
+
+    public static void main(String[] args) {
+        String source = BenchSources.demoScript(16_000_000);
+        int tokenCount = new CatScriptTokenizer(source).getTokens().size();
+        long sequential = Bench.bestNanos(() -> new CatScriptTokenizer(source), 5, 10);
+        System.out.printf("%,d tokens from %s%n", tokenCount, Bench.humanSize(source.length()));
+        System.out.printf("sequential:  %7.2f ms  %,15.0f tokens/s%n", sequential / 1e6, tokenCount / (sequential / 1e9));
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long nanos = Bench.bestNanos(() -> CatScriptTokenizer.tokenizeInParallel(source, pool), 5, 10);
+            System.out.printf("%2d threads:  %7.2f ms  %,15.0f tokens/s%n", threads, nanos / 1e6, tokenCount / (nanos / 1e9));
+            pool.shutdown();
+        }
+    }
+}
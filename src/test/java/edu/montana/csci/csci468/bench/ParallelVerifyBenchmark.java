@@ -0,0 +1,54 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatScriptParser;
+import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
+
+import java.util.concurrent.ForkJoinPool;
+
+// Verify time for scripts of hundreds of functions, sequentially and on 2..N threads, each run
+// on a freshly parsed program
+public class ParallelVerifyBenchmark {
+
+    public static void main(String[] args) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        // both ways compiled before either is measured
+        String warmup = new ProgramGenerator(0).setFunctions(400).generate();
+        ForkJoinPool warmupPool = new ForkJoinPool(2);
+        for (int i = 0; i < 3; i++) {
+            bestVerifyNanos(warmup, null);
+            bestVerifyNanos(warmup, warmupPool);
+        }
+        warmupPool.shutdown();
+        for (int functions : new int[]{200, 800}) {
+            String source = new ProgramGenerator(functions).setFunctions(functions).setDepth(4).generate();
+            System.out.printf("%s, %,d functions, %d cores%n", Bench.humanSize(source.length()), functions, cores);
+            long sequential = bestVerifyNanos(source, null);
+            System.out.printf("  sequential:  %8.2f ms%n", sequential / 1e6);
+            for (int threads = 2; threads <= Math.max(cores, 2); threads *= 2) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                long nanos = bestVerifyNanos(source, pool);
+                System.out.printf("  %2d threads:  %8.2f ms  %.2fx%n", threads, nanos / 1e6, (double) sequential / nanos);
+                pool.shutdown();
+            }
+        }
+    }
+
+    // verify only, programs can't be verified twice without collecting their errors twice
+    private static long bestVerifyNanos(String source, ForkJoinPool pool) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < Bench.WARMUP_RUNS + Bench.MEASURED_RUNS; run++) {
+            CatScriptProgram program = new CatScriptParser().parse(source);
+            long start = System.nanoTime();
+            if (pool == null) {
+                program.verify();
+            } else {
+                program.verifyInParallel(pool);
+            }
+            long nanos = System.nanoTime() - start;
+            if (run >= Bench.WARMUP_RUNS) {
+                best = Math.min(best, nanos);
+            }
+        }
+        return best;
+    }
+}
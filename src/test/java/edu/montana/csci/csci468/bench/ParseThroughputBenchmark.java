@@ -0,0 +1,31 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatScriptParser;
+
+// Parse time and allocation over statement heavy scripts: the demo script replicated to 1 MB,
+// and many small scripts starting with each kind of statement
+public class ParseThroughputBenchmark {
+
+    public static void main(String[] args) {
+        String large = BenchSources.demoScript(1_000_000);
+        String[] small = new String[10_000];
+        for (int i = 0; i < small.length; i++) {
+            String body = "foo(" + i + ", [1, 2, 3], \"call\")\nvar x = " + i + "\nprint(x)\n";
+            String[] starts = {"", "x = [1, 2, 3]\n", "print([1, 2, 3])\n", "var y = [1, 2, 3]\n"};
+            small[i] = starts[i % starts.length] + body;
+        }
+        report("1 MB script", () -> new CatScriptParser().parse(large), 1);
+        report("small scripts", () -> {
+            for (String source : small) {
+                new CatScriptParser().parse(source);
+            }
+        }, small.length);
+    }
+
+    private static void report(String name, Runnable parse, int scripts) {
+        long nanos = Bench.bestNanos(parse, 10, 20);
+        long allocated = Bench.allocatedBytes(parse);
+        System.out.printf("%-14s %7.2f ms, %,d bytes allocated per script%n", name, nanos / 1e6,
+                allocated / scripts);
+    }
+}
@@ -0,0 +1,47 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatScriptParser;
+import edu.montana.csci.csci468.parser.ProgramCache;
+import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+// Time to get a verified program by parsing and verifying the source versus loading it from a
+// warm ProgramCache, for a small and a large script
+public class ProgramCacheBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("catscript-cache");
+        ProgramCache cache = new ProgramCache(directory);
+        for (String source : new String[]{BenchSources.demoScript(), BenchSources.demoScript(1_000_000)}) {
+            cache.load(source);
+            long parse = Bench.bestNanos(() -> {
+                CatScriptProgram program = new CatScriptParser().parse(source);
+                program.verify();
+            }, 10, 20);
+            long load = Bench.bestNanos(() -> cache.load(source), 10, 20);
+            System.out.printf("%s of source, %s cached%n", Bench.humanSize(source.length()), Bench.humanSize(size(directory)));
+            System.out.printf("  parse + verify: %9.3f ms%n", parse / 1e6);
+            System.out.printf("  cache load:     %9.3f ms  %.2fx%n", load / 1e6, (double) parse / load);
+            clear(directory);
+        }
+        Files.delete(directory);
+    }
+
+    private static long size(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void clear(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package edu.montana.csci.csci468.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Random CatScript programs of a given shape.  Programs from generate() verify without errors:
+// every name is unique, every expression has the type its position needs and every function
+// with a return type ends with a return.  generateInvalid() takes such a program and deletes,
+// repeats or replaces some of its tokens, so the result is almost always wrong in a way that
+// still looks like CatScript.
+public class ProgramGenerator {
+
+    private static final String INT = "int";
+    private static final String BOOL = "bool";
+    private static final String STRING = "string";
+    private static final String LIST = "list<int>";
+    private static final String VOID = "void";
+    private static final String[] VALUE_TYPES = {INT, BOOL, STRING, LIST};
+    private static final String[] PARAMETER_TYPES = {INT, BOOL, STRING};
+    private static final String[] RETURN_TYPES = {INT, BOOL, VOID};
+
+    private static final String[] FRAGMENTS = {
+            "print", "(", ")", "{", "}", "[", "]", ",", ":", "=", "==", "+", "-", "*", "/", "<",
+            ">=", "not", "var", "if", "else", "for", "in", "function", "return", "true", "null",
+            "x", "f0", "int", "list", "7", "\"s\"", "\n"
+    };
+
+    private final Random random;
+    private int functions = 10;
+    private int topLevelStatements = -1;
+    private int statements = 5;
+    private int depth = 3;
+    private int expressionDepth = 3;
+    private int listWidth = 3;
+    private boolean nestedCalls = true;
+
+    private final List<Function> signatures = new ArrayList<>();
+    private final List<Map<String, String>> scopes = new ArrayList<>();
+    private List<String> tokens;
+    private int names;
+    private boolean inFunction;
+
+    public ProgramGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    // the number of function definitions, also the number of top level statements after them
+    // unless that is set separately
+    public ProgramGenerator setFunctions(int functions) {
+        this.functions = functions;
+        return this;
+    }
+
+    public ProgramGenerator setTopLevelStatements(int topLevelStatements) {
+        this.topLevelStatements = topLevelStatements;
+        return this;
+    }
+
+    // the number of statements in each block, not counting a function's return
+    public ProgramGenerator setStatements(int statements) {
+        this.statements = statements;
+        return this;
+    }
+
+    // how many if and for blocks deep statements are nested, each block has at most one nested
+    // block and else blocks have none, so the size of a program grows linearly with it
+    public ProgramGenerator setDepth(int depth) {
+        this.depth = depth;
+        return this;
+    }
+
+    // how many operators deep expressions are nested, one side of every binary operator is a
+    // leaf so the size of an expression grows linearly with it
+    public ProgramGenerator setExpressionDepth(int expressionDepth) {
+        this.expressionDepth = expressionDepth;
+        return this;
+    }
+
+    public ProgramGenerator setListWidth(int listWidth) {
+        this.listWidth = listWidth;
+        return this;
+    }
+
+    // whether function bodies call functions, without those calls a program only runs the
+    // functions its top level statements call, like a script using a library
+    public ProgramGenerator setNestedCalls(boolean nestedCalls) {
+        this.nestedCalls = nestedCalls;
+        return this;
+    }
+
+    public String generate() {
+        return join(generateTokens());
+    }
+
+    public String generateInvalid(int mutations) {
+        List<String> tokens = generateTokens();
+        for (int i = 0; i < mutations && !tokens.isEmpty(); i++) {
+            int index = random.nextInt(tokens.size());
+            switch (random.nextInt(3)) {
+                case 0:
+                    tokens.remove(index);
+                    break;
+                case 1:
+                    tokens.add(index, tokens.get(index));
+                    break;
+                default:
+                    tokens.set(index, FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+        }
+        return join(tokens);
+    }
+
+    private List<String> generateTokens() {
+        tokens = new ArrayList<>();
+        signatures.clear();
+        scopes.clear();
+        for (int i = 0; i < functions; i++) {
+            Function function = new Function(newName("f"), pick(RETURN_TYPES));
+            int parameterCount = random.nextInt(4);
+            for (int j = 0; j < parameterCount; j++) {
+                function.parameterTypes.add(pick(PARAMETER_TYPES));
+            }
+            signatures.add(function);
+        }
+        for (Function function : signatures) {
+            functionDefinition(function);
+        }
+        pushScope();
+        int statementCount = topLevelStatements < 0 ? functions : topLevelStatements;
+        for (int i = 0; i < statementCount; i++) {
+            statement(depth);
+        }
+        popScope();
+        return tokens;
+    }
+
+    private void functionDefinition(Function function) {
+        inFunction = true;
+        pushScope();
+        emit("function", function.name, "(");
+        for (int i = 0; i < function.parameterTypes.size(); i++) {
+            if (i > 0) {
+                emit(",");
+            }
+            String name = newName("p");
+            emit(name, ":", function.parameterTypes.get(i));
+            declare(name, function.parameterTypes.get(i));
+        }
+        emit(")");
+        if (!function.returnType.equals(VOID)) {
+            emit(":", function.returnType);
+        }
+        emit("{", "\n");
+        block(depth);
+        if (!function.returnType.equals(VOID)) {
+            emit("return");
+            expression(function.returnType, expressionDepth);
+            emit("\n");
+        }
+        emit("}", "\n");
+        popScope();
+        inFunction = false;
+    }
+
+    private void block(int depth) {
+        int nested = depth > 0 ? random.nextInt(Math.max(1, statements)) : -1;
+        for (int i = 0; i < statements; i++) {
+            if (i == nested) {
+                nestedStatement(depth - 1);
+            } else {
+                statement(0);
+            }
+        }
+    }
+
+    private void statement(int depth) {
+        if (depth > 0) {
+            nestedStatement(depth - 1);
+            return;
+        }
+        switch (random.nextInt(canCall() ? 4 : 3)) {
+            case 0:
+                emit("print", "(");
+                expression(pick(VALUE_TYPES), expressionDepth);
+                emit(")");
+                break;
+            case 1:
+                String assignable = randomVariable(pick(PARAMETER_TYPES));
+                if (assignable != null) {
+                    emit(assignable, "=");
+                    expression(lookup(assignable), expressionDepth);
+                    break;
+                }
+                // fall through to a declaration when there is nothing to assign to
+            case 2:
+                String type = pick(VALUE_TYPES);
+                String name = newName("v");
+                emit("var", name);
+                if (random.nextBoolean()) {
+                    emit(":", type);
+                }
+                emit("=");
+                expression(type, expressionDepth);
+                declare(name, type);
+                break;
+            default:
+                call(signatures.get(random.nextInt(signatures.size())));
+        }
+        emit("\n");
+    }
+
+    private void nestedStatement(int depth) {
+        if (random.nextBoolean()) {
+            emit("if", "(");
+            expression(BOOL, expressionDepth);
+            emit(")");
+            nestedBlock(depth);
+            if (random.nextBoolean()) {
+                emit("else");
+                nestedBlock(0);
+            }
+        } else {
+            String name = newName("i");
+            emit("for", "(", name, "in");
+            expression(LIST, expressionDepth);
+            emit(")");
+            pushScope();
+            declare(name, INT);
+            nestedBlock(depth);
+            popScope();
+        }
+        emit("\n");
+    }
+
+    private void nestedBlock(int depth) {
+        pushScope();
+        emit("{", "\n");
+        block(depth);
+        emit("}");
+        popScope();
+    }
+
+    private void expression(String type, int depth) {
+        // stopping early at random, less often the deeper expressions are allowed to be
+        if (depth == 0 || random.nextInt(expressionDepth + 1) == 0) {
+            leaf(type);
+            return;
+        }
+        switch (type) {
+            case INT:
+                switch (random.nextInt(4)) {
+                    case 0:
+                        emit("-");
+                        expression(INT, depth - 1);
+                        break;
+                    case 1:
+                        emit("(");
+                        expression(INT, depth - 1);
+                        emit(")");
+                        break;
+                    default:
+                        binary(INT, pick("+", "-", "*", "/"), INT, depth);
+                }
+                break;
+            case BOOL:
+                switch (random.nextInt(3)) {
+                    case 0:
+                        // parenthesized since not binds tighter than the comparisons
+                        emit("not", "(");
+                        expression(BOOL, depth - 1);
+                        emit(")");
+                        break;
+                    case 1:
+                        binary(INT, pick("<", "<=", ">", ">="), INT, depth);
+                        break;
+                    default:
+                        String operandType = pick(VALUE_TYPES);
+                        binary(operandType, pick("==", "!="), operandType, depth);
+                }
+                break;
+            case STRING:
+                binary(STRING, "+", pick(INT, STRING), depth);
+                break;
+            default:
+                list(depth);
+        }
+    }
+
+    private void binary(String leftType, String operator, String rightType, int depth) {
+        if (random.nextBoolean()) {
+            expression(leftType, depth - 1);
+            emit(operator);
+            leaf(rightType);
+        } else {
+            leaf(leftType);
+            emit(operator);
+            expression(rightType, depth - 1);
+        }
+    }
+
+    private void list(int depth) {
+        emit("[");
+        int width = Math.max(1, listWidth);
+        for (int i = 0; i < width; i++) {
+            if (i > 0) {
+                emit(",");
+            }
+            expression(INT, i == 0 ? depth - 1 : 0);
+        }
+        emit("]");
+    }
+
+    private void leaf(String type) {
+        int choice = random.nextInt(3);
+        if (choice == 0) {
+            String variable = randomVariable(type);
+            if (variable != null) {
+                emit(variable);
+                return;
+            }
+        } else if (choice == 1 && !type.equals(LIST) && canCall()) {
+            for (int attempt = 0; attempt < 3; attempt++) {
+                Function function = signatures.get(random.nextInt(signatures.size()));
+                if (function.returnType.equals(type)) {
+                    call(function);
+                    return;
+                }
+            }
+        }
+        switch (type) {
+            case INT:
+                emit(Integer.toString(random.nextInt(1000)));
+                break;
+            case BOOL:
+                emit(random.nextBoolean() ? "true" : "false");
+                break;
+            case STRING:
+                emit("\"s" + random.nextInt(1000) + "\"");
+                break;
+            default:
+                list(0);
+        }
+    }
+
+    // arguments are leaves so calls nested in arguments do not multiply the size of a program
+    private void call(Function function) {
+        emit(function.name, "(");
+        for (int i = 0; i < function.parameterTypes.size(); i++) {
+            if (i > 0) {
+                emit(",");
+            }
+            leaf(function.parameterTypes.get(i));
+        }
+        emit(")");
+    }
+
+    private boolean canCall() {
+        return !signatures.isEmpty() && (nestedCalls || !inFunction);
+    }
+
+    private String randomVariable(String type) {
+        List<String> candidates = new ArrayList<>();
+        for (Map<String, String> scope : scopes) {
+            for (Map.Entry<String, String> entry : scope.entrySet()) {
+                if (entry.getValue().equals(type)) {
+                    candidates.add(entry.getKey());
+                }
+            }
+        }
+        return candidates.isEmpty() ? null : candidates.get(random.nextInt(candidates.size()));
+    }
+
+    private String lookup(String name) {
+        for (Map<String, String> scope : scopes) {
+            if (scope.containsKey(name)) {
+                return scope.get(name);
+            }
+        }
+        return null;
+    }
+
+    private void declare(String name, String type) {
+        scopes.get(scopes.size() - 1).put(name, type);
+    }
+
+    private void pushScope() {
+        scopes.add(new HashMap<>());
+    }
+
+    private void popScope() {
+        scopes.remove(scopes.size() - 1);
+    }
+
+    private String newName(String prefix) {
+        return prefix + names++;
+    }
+
+    private void emit(String... tokens) {
+        for (String token : tokens) {
+            this.tokens.add(token);
+        }
+    }
+
+    @SafeVarargs
+    private <T> T pick(T... choices) {
+        return choices[random.nextInt(choices.length)];
+    }
+
+    private static String join(List<String> tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (String token : tokens) {
+            if (token.equals("\n")) {
+                sb.append('\n');
+            } else {
+                if (sb.length() > 0 && sb.charAt(sb.length() - 1) != '\n') {
+                    sb.append(' ');
+                }
+                sb.append(token);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class Function {
+        final String name;
+        final String returnType;
+        final List<String> parameterTypes = new ArrayList<>();
+
+        Function(String name, String returnType) {
+            this.name = name;
+            this.returnType = returnType;
+        }
+    }
+}
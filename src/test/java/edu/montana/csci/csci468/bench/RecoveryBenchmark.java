@@ -0,0 +1,59 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatScriptParser;
+import edu.montana.csci.csci468.parser.ParseElement;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+// Parse time and error count for random sequences of CatScript fragments, which are almost
+// never valid, with the default error limit and with the limit effectively off
+public class RecoveryBenchmark {
+
+    private static final String[] FRAGMENTS = {
+            "print", "(", ")", "{", "}", "[", "]", ",", ":", "=", "==", "+", "-", "*", "/", "<", ">=",
+            "not", "var", "if", "else", "for", "in", "function", "return", "true", "false", "null",
+            "x", "y", "foo", "int", "list", "<", "42", "\"str\"", "\n"
+    };
+
+    public static void main(String[] args) {
+        for (int length : new int[]{10_000, 100_000, 1_000_000}) {
+            String source = garbage(length, new Random(length));
+            System.out.printf("%s of fragments%n", Bench.humanSize(source.length()));
+            report("default limit", source, CatScriptParser.DEFAULT_MAX_ERRORS);
+            report("no limit", source, Integer.MAX_VALUE);
+        }
+    }
+
+    private static void report(String label, String source, int maxErrors) {
+        CatScriptParser parser = new CatScriptParser();
+        parser.setMaxErrors(maxErrors);
+        int errors = countErrors(parser.parse(source));
+        long nanos = Bench.bestNanos(() -> parser.parse(source));
+        System.out.printf("  %-14s %9.3f ms  %6.1f ns/char  %,9d errors%n", label, nanos / 1e6,
+                (double) nanos / source.length(), errors);
+    }
+
+    // the parse errors alone, verify() would validate the program too
+    private static int countErrors(ParseElement root) {
+        int count = 0;
+        ArrayDeque<ParseElement> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            ParseElement element = pending.pop();
+            count += element.getErrors().size();
+            for (int i = 0; i < element.getChildCount(); i++) {
+                pending.push(element.getChild(i));
+            }
+        }
+        return count;
+    }
+
+    private static String garbage(int minimumLength, Random random) {
+        StringBuilder sb = new StringBuilder(minimumLength + 16);
+        while (sb.length() < minimumLength) {
+            sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]).append(' ');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,32 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatScriptParser;
+import edu.montana.csci.csci468.tokenizer.CatScriptTokenizer;
+import edu.montana.csci.csci468.tokenizer.Token;
+import edu.montana.csci.csci468.tokenizer.TokenList;
+import edu.montana.csci.csci468.tokenizer.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Memory retained by the identifier and string values of the demo script replicated to 1 MB,
+// and by its parse tree
+public class SymbolPoolBenchmark {
+
+    public static void main(String[] args) {
+        String source = BenchSources.demoScript(1_000_000);
+        TokenList tokens = new CatScriptTokenizer(source).getTokens();
+        long values = Bench.retainedBytes(() -> {
+            List<String> names = new ArrayList<>();
+            for (Token token : tokens) {
+                if (token.getType() == TokenType.IDENTIFIER || token.getType() == TokenType.STRING) {
+                    names.add(token.getStringValue());
+                }
+            }
+            return names;
+        });
+        long tree = Bench.retainedBytes(() -> new CatScriptParser().parse(source));
+        System.out.printf("identifier and string values retain %s%n", Bench.humanSize(values));
+        System.out.printf("parse tree retains %s%n", Bench.humanSize(tree));
+    }
+}
@@ -0,0 +1,23 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatScriptParser;
+import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
+
+// Time and allocation of verifying programs, which is mostly symbol table work: many global
+// names, and deeply nested blocks that mostly declare nothing
+public class SymbolTableBenchmark {
+
+    public static void main(String[] args) {
+        report("2,000 functions", new ProgramGenerator(1).setFunctions(2_000).setExpressionDepth(1).generate());
+        report("depth 200 blocks", new ProgramGenerator(2).setFunctions(20).setDepth(200).setStatements(1)
+                .setExpressionDepth(1).generate());
+    }
+
+    private static void report(String label, String source) {
+        CatScriptProgram program = new CatScriptParser().parse(source);
+        long nanos = Bench.bestNanos(program::verify);
+        long bytes = Bench.allocatedBytes(program::verify);
+        System.out.printf("%-18s %s  verify %8.3f ms  %,12d bytes%n", label, Bench.humanSize(source.length()),
+                nanos / 1e6, bytes);
+    }
+}
@@ -0,0 +1,33 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.tokenizer.CatScriptTokenizer;
+import edu.montana.csci.csci468.tokenizer.Token;
+import edu.montana.csci.csci468.tokenizer.TokenList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Retained bytes per token for the compact TokenList versus one Token object (plus its string
+// value) per token, which is how TokenList used to store them.
+public class TokenMemoryBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String source = BenchSources.demoScript(4_000_000);
+        TokenList tokens = new CatScriptTokenizer(source).getTokens();
+        int count = tokens.size();
+
+        long objectBytes = Bench.retainedBytes(() -> {
+            List<Token> objects = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                objects.add(new Token(tokens.startAt(i), tokens.endAt(i), tokens.lineAt(i), tokens.lineOffsetAt(i),
+                        tokens.stringValueAt(i), tokens.typeAt(i), null));
+            }
+            return objects;
+        });
+        long compactBytes = Bench.retainedBytes(() -> new CatScriptTokenizer(source).getTokens());
+
+        System.out.printf("%,d tokens from %s of source%n", count, Bench.humanSize(source.length()));
+        System.out.printf("Token objects : %6.1f bytes/token%n", (double) objectBytes / count);
+        System.out.printf("compact arrays: %6.1f bytes/token%n", (double) compactBytes / count);
+    }
+}
@@ -0,0 +1,20 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.tokenizer.CatScriptTokenizer;
+
+// Tokenizer throughput for a single string literal of growing size.  With linear scanning the
+// ns/char column should stay flat from 10 B all the way to 10 MB.
+public class TokenizerBenchmark {
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %14s %10s %16s%n", "literal", "best (us)", "ns/char", "allocated (KB)");
+        for (int size = 10; size <= 10_000_000; size *= 10) {
+            String source = "var x = \"" + "a".repeat(size) + "\"";
+            boolean large = size >= 1_000_000;
+            long nanos = Bench.bestNanos(() -> new CatScriptTokenizer(source), large ? 2 : 200, large ? 3 : 50);
+            long allocated = Bench.allocatedBytes(() -> new CatScriptTokenizer(source));
+            System.out.printf("%10s %14.1f %10.2f %16d%n", Bench.humanSize(size), nanos / 1000.0,
+                    (double) nanos / source.length(), allocated / 1024);
+        }
+    }
+}
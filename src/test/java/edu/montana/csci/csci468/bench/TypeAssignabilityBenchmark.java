@@ -0,0 +1,59 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatscriptType;
+
+// Time per isAssignableFrom and equals over every pair of a set of simple and nested list types,
+// the checks type checking does for arguments, variables and operators
+public class TypeAssignabilityBenchmark {
+
+    private static final int ROUNDS = 20_000;
+
+    public static void main(String[] args) {
+        CatscriptType[] simple = {CatscriptType.INT, CatscriptType.STRING, CatscriptType.BOOLEAN,
+                CatscriptType.OBJECT, CatscriptType.NULL, CatscriptType.VOID};
+        CatscriptType[] types = new CatscriptType[simple.length * 4];
+        for (int i = 0; i < simple.length; i++) {
+            CatscriptType type = simple[i];
+            for (int depth = 0; depth < 4; depth++) {
+                types[depth * simple.length + i] = type;
+                type = CatscriptType.getListType(type);
+            }
+        }
+        long checks = (long) ROUNDS * types.length * types.length;
+        long assignable = Bench.bestNanos(() -> {
+            int count = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                for (CatscriptType to : types) {
+                    for (CatscriptType from : types) {
+                        if (to.isAssignableFrom(from)) {
+                            count++;
+                        }
+                    }
+                }
+            }
+            sink(count);
+        });
+        long equal = Bench.bestNanos(() -> {
+            int count = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                for (CatscriptType to : types) {
+                    for (CatscriptType from : types) {
+                        if (to.equals(from)) {
+                            count++;
+                        }
+                    }
+                }
+            }
+            sink(count);
+        });
+        System.out.printf("%d types, %,d checks%n", types.length, checks);
+        System.out.printf("isAssignableFrom  %6.2f ns/check%n", (double) assignable / checks);
+        System.out.printf("equals            %6.2f ns/check%n", (double) equal / checks);
+    }
+
+    private static int sunk;
+
+    private static void sink(int count) {
+        sunk += count;
+    }
+}
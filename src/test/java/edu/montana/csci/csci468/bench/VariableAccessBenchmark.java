@@ -0,0 +1,34 @@
+package edu.montana.csci.csci468.bench;
+
+import edu.montana.csci.csci468.parser.CatScriptParser;
+import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
+
+// Evaluating a program that is mostly variable reads and writes: loop variables, locals,
+// globals and a function's parameters
+public class VariableAccessBenchmark {
+
+    private static final String SOURCE = "var xs = [1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20]\n" +
+            "var k = 3\n" +
+            "function f(a : int, b : int) : int {\n" +
+            "  var c = a * b + k\n" +
+            "  return c - a\n" +
+            "}\n" +
+            "for (x in xs) {\n" +
+            "  for (y in xs) {\n" +
+            "    for (w in xs) {\n" +
+            "      var z = x + y * w - k\n" +
+            "      print(f(z, x) + z)\n" +
+            "    }\n" +
+            "  }\n" +
+            "}\n";
+
+    public static void main(String[] args) {
+        // a fresh program each run, execute() appends to the program's output
+        long nanos = Bench.bestNanos(() -> {
+            CatScriptProgram run = new CatScriptParser().parse(SOURCE);
+            run.verify();
+            run.execute();
+        });
+        System.out.printf("evaluate: %8.3f ms%n", nanos / 1e6);
+    }
+}
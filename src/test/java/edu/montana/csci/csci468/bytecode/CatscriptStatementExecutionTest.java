@@ -90,5 +90,38 @@ public class CatscriptStatementExecutionTest extends CatscriptTestBase {
         ));
     }
 
+    @Test
+    void assignmentStatementWorksProperly() {
+        assertEquals("2\n", compile("var x = 1\n" +
+                "x = 2\n" +
+                "print(x)"));
+        assertEquals("3\n", compile("if(true) { var x = 1\n" +
+                "x = x + 2\n" +
+                "print(x) }"));
+        assertEquals("foo\n", compile("function f(x : string) { x = \"foo\"\n" +
+                "print(x) }\n" +
+                "f(\"bar\")"));
+    }
+
+    @Test
+    void recursiveCallsKeepTheirOwnLocals() {
+        assertEquals("3\n2\n1\n1\n2\n3\n", compile(
+                "function foo(x : int) {\n" +
+                        "var y = x\n" +
+                        "print(y)\n" +
+                        "if(x > 1) { foo(x - 1) }\n" +
+                        "print(y)\n" +
+                "}\n" +
+                "foo(3)"
+        ));
+    }
+
+    @Test
+    void siblingBlocksReuseSlotsWithDifferentTypes() {
+        assertEquals("1\nfoo\n", compile(
+                "if(true) { var x = 1\n print(x) }\n" +
+                "if(true) { var y = \"foo\"\n print(y) }"
+        ));
+    }
 
 }
@@ -1,9 +1,21 @@
 package edu.montana.csci.csci468.eval;
 
 import edu.montana.csci.csci468.CatscriptTestBase;
+import edu.montana.csci.csci468.parser.CatScriptParser;
+import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -19,6 +31,57 @@ public class CatscriptStatementExecutionTest extends CatscriptTestBase {
         assertEquals("[1, 2, 3]\n", executeProgram("print([1, 2, 3])"));
     }
 
+    @Test
+    void programsParsedFromAReaderWork() {
+        String src = "var x = 1\n" +
+                "function foo(y : int) { print(y) }\n" +
+                "foo(x)\n" +
+                "print([x, 2])";
+        CatScriptProgram program = new CatScriptParser().parse(new StringReader(src));
+        program.verify();
+        program.execute();
+        assertEquals(executeProgram(src), program.getOutput());
+        CatScriptProgram expression = new CatScriptParser().parse(new StringReader("1 + 1"));
+        assertEquals(2, expression.getExpression().evaluate(new CatscriptRuntime()));
+    }
+
+    @Test
+    void programsParsedFromUtf8BytesWork() {
+        String src = "var x = \"caf\u00e9\"\n" +
+                "print(x)";
+        CatScriptProgram program = new CatScriptParser().parse(ByteBuffer.wrap(src.getBytes(StandardCharsets.UTF_8)));
+        program.verify();
+        program.execute();
+        assertEquals("caf\u00e9\n", program.getOutput());
+    }
+
+    @Test
+    void largeProgramsParsedFromUtf8BytesWork() throws IOException {
+        String list = IntStream.rangeClosed(1, 200).mapToObj(i -> "\"caf\u00e9 " + i + "\"").collect(Collectors.joining(", "));
+        String src = IntStream.range(0, 20).mapToObj(i -> "var xs" + i + " = [" + list + "]\n" +
+                "for (x in xs" + i + ") { if (x == \"caf\u00e9 7\") { print(x) } }\n" +
+                "print([" + list + "])\n").collect(Collectors.joining());
+        Object expected = executeProgram(src);
+        byte[] bytes = src.getBytes(StandardCharsets.UTF_8);
+        CatScriptProgram program = new CatScriptParser().parse(ByteBuffer.wrap(bytes));
+        program.verify();
+        program.execute();
+        assertEquals(expected, program.getOutput());
+
+        Path file = Files.createTempFile("program", ".cat");
+        try {
+            Files.write(file, bytes);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                CatScriptProgram mapped = new CatScriptParser().parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                mapped.verify();
+                mapped.execute();
+                assertEquals(expected, mapped.getOutput());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     @Test
     void ifStatementWorksProperly() {
         assertEquals("1\n", executeProgram("if(true){ print(1) }"));
@@ -93,5 +156,38 @@ public class CatscriptStatementExecutionTest extends CatscriptTestBase {
         ));
     }
 
+    @Test
+    void assignmentStatementWorksProperly() {
+        assertEquals("2\n", executeProgram("var x = 1\n" +
+                "x = 2\n" +
+                "print(x)"));
+        assertEquals("3\n", executeProgram("if(true) { var x = 1\n" +
+                "x = x + 2\n" +
+                "print(x) }"));
+        assertEquals("foo\n", executeProgram("function f(x : string) { x = \"foo\"\n" +
+                "print(x) }\n" +
+                "f(\"bar\")"));
+    }
+
+    @Test
+    void recursiveCallsKeepTheirOwnLocals() {
+        assertEquals("3\n2\n1\n1\n2\n3\n", executeProgram(
+                "function foo(x : int) {\n" +
+                        "var y = x\n" +
+                        "print(y)\n" +
+                        "if(x > 1) { foo(x - 1) }\n" +
+                        "print(y)\n" +
+                "}\n" +
+                "foo(3)"
+        ));
+    }
+
+    @Test
+    void siblingBlocksReuseSlotsWithDifferentTypes() {
+        assertEquals("1\nfoo\n", executeProgram(
+                "if(true) { var x = 1\n print(x) }\n" +
+                "if(true) { var y = \"foo\"\n print(y) }"
+        ));
+    }
 
 }
@@ -1,11 +1,21 @@
 package edu.montana.csci.csci468.parser;
 
 import edu.montana.csci.csci468.CatscriptTestBase;
+import edu.montana.csci.csci468.bytecode.ByteCodeGenerator;
+import edu.montana.csci.csci468.bench.ProgramGenerator;
+import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
+import edu.montana.csci.csci468.parser.statements.FunctionDefinitionStatement;
+import edu.montana.csci.csci468.parser.statements.PrintStatement;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class CatscriptParserErrorsTest extends CatscriptTestBase {
@@ -16,6 +26,182 @@ public class CatscriptParserErrorsTest extends CatscriptTestBase {
         assertError(errors, 0, ErrorType.UNKNOWN_NAME, 1, 0);
     }
 
+    @Test
+    public void deeplyNestedExpressionsAreAnError() {
+        int depth = CatScriptParser.DEFAULT_MAX_NESTING_DEPTH * 5;
+        List<ParseError> errors = getErrors("(".repeat(depth) + "1" + ")".repeat(depth));
+        assertEquals(1, errors.size());
+        assertError(errors, 0, ErrorType.NESTING_TOO_DEEP, 1, 0);
+
+        assertError(getErrors("-".repeat(depth) + "1"), 0, ErrorType.NESTING_TOO_DEEP);
+        assertError(getErrors("[".repeat(depth) + "]".repeat(depth)), 0, ErrorType.NESTING_TOO_DEEP);
+        assertError(getErrors("1" + " + 1".repeat(depth)), 0, ErrorType.NESTING_TOO_DEEP);
+    }
+
+    @Test
+    public void deeplyNestedBlocksAreAnError() {
+        int depth = CatScriptParser.DEFAULT_MAX_NESTING_DEPTH * 5;
+        List<ParseError> errors = getErrors("if(true){\n".repeat(depth) + "print(1)\n" + "}\n".repeat(depth));
+        assertEquals(1, errors.size());
+        assertError(errors, 0, ErrorType.NESTING_TOO_DEEP);
+
+        String elseIfs = "if(true){}" + " else if(false){ if(true){} }".repeat(depth) + " else {}";
+        assertError(getErrors(elseIfs), 0, ErrorType.NESTING_TOO_DEEP);
+    }
+
+    @Test
+    public void nestingUpToTheLimitWorks() {
+        CatScriptParser parser = new CatScriptParser();
+        parser.setMaxNestingDepth(10);
+        assertEquals(0, parser.parse("(((((((((1)))))))))").getErrors().size());
+        CatScriptProgram program = parser.parse("((((((((((1))))))))))");
+        assertThrows(ParseErrorException.class, program::verify);
+
+        int depth = CatScriptParser.DEFAULT_MAX_NESTING_DEPTH - 1;
+        assertEquals(1, evaluateExpression("(".repeat(depth) + "1" + ")".repeat(depth)));
+        assertEquals("1\n", executeProgram("if(true){\n".repeat(depth) + "print(1)\n" + "}\n".repeat(depth)));
+    }
+
+    @Test
+    public void nestingIsLimitedToTheMaximum() {
+        CatScriptParser parser = new CatScriptParser();
+        parser.setMaxNestingDepth(Integer.MAX_VALUE);
+        int depth = CatScriptParser.MAX_NESTING_DEPTH;
+        CatScriptProgram program = parser.parse("(".repeat(depth) + "1" + ")".repeat(depth));
+        ParseErrorException exception = assertThrows(ParseErrorException.class, program::verify);
+        assertError(exception.getErrors(), 0, ErrorType.NESTING_TOO_DEEP);
+    }
+
+    @Test
+    public void nestingAtTheMaximumFitsOnTheDefaultStack() throws InterruptedException {
+        int depth = CatScriptParser.MAX_NESTING_DEPTH;
+        String source = "if(true){\n".repeat(depth) +
+                "print(" + "[".repeat(depth - 1) + "1" + "]".repeat(depth - 1) + ")\n" +
+                "print(1" + " + 1".repeat(depth - 1) + ")\n" +
+                "}\n".repeat(depth);
+        String listOutput = "[".repeat(depth - 1) + "1" + "]".repeat(depth - 1) + "\n";
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                CatScriptProgram program = new CatScriptParser().parse(source);
+                program.verify();
+                program.execute();
+                assertEquals(listOutput + depth + "\n", program.getOutput());
+                CatScriptProgram compiled = new ByteCodeGenerator(program).compileToBytecode();
+                compiled.execute();
+                assertEquals(listOutput + depth + "\n", compiled.getOutput());
+            } catch (Throwable t) {
+                failure[0] = t;
+            }
+        }, "nesting", 1 << 20);
+        thread.start();
+        thread.join();
+        assertNull(failure[0]);
+    }
+
+    @Test
+    public void brokenStatementsAreOneErrorEach() {
+        List<ParseError> errors = getErrors("print(1)\n) ) ) 1 2 3 + +\nprint(2)");
+        assertEquals(1, errors.size());
+        assertError(errors, 0, ErrorType.UNEXPECTED_TOKEN, 2, 0);
+
+        CatScriptProgram program = new CatScriptParser().parse("function f() {\n  ) ) x\n  print(1)\n}\nprint(2)");
+        assertEquals(2, program.getStatements().size());
+        FunctionDefinitionStatement function = (FunctionDefinitionStatement) program.getStatements().get(0);
+        assertEquals(2, function.getBody().size());
+        assertTrue(function.getBody().get(1) instanceof PrintStatement);
+    }
+
+    @Test
+    public void expressionsStopAtStatementKeywords() {
+        CatScriptProgram program = new CatScriptParser().parse("var x = [1, 2\nprint(x)\nfoo(1, \nprint(x)");
+        assertEquals(4, program.getStatements().size());
+        assertTrue(program.getStatements().get(1) instanceof PrintStatement);
+        assertTrue(program.getStatements().get(3) instanceof PrintStatement);
+    }
+
+    @Test
+    public void brokenParameterListsRecover() {
+        CatScriptProgram program = new CatScriptParser().parse("function h( { print(1) }\nprint(2)");
+        assertEquals(2, program.getStatements().size());
+        assertThrows(ParseErrorException.class, program::verify);
+    }
+
+    @Test
+    public void syntaxErrorsAreLimited() {
+        List<ParseError> errors = getErrors("print(\n".repeat(10_000));
+        assertEquals(CatScriptParser.DEFAULT_MAX_ERRORS + 1, errors.size());
+        assertError(errors, 0, ErrorType.TOO_MANY_ERRORS);
+
+        CatScriptParser parser = new CatScriptParser();
+        parser.setMaxErrors(3);
+        CatScriptProgram program = parser.parse("print(1)\nprint(\nprint(\nprint(\nprint(\nprint(2)");
+        ParseErrorException exception = assertThrows(ParseErrorException.class, program::verify);
+        assertEquals(4, exception.getErrors().size());
+        assertError(exception.getErrors(), 0, ErrorType.TOO_MANY_ERRORS, 4, 0);
+    }
+
+    @Test
+    public void generatedProgramsVerify() {
+        for (int seed = 0; seed < 50; seed++) {
+            String source = new ProgramGenerator(seed).setFunctions(1 + seed % 5).setDepth(seed % 4).generate();
+            CatScriptProgram program = new CatScriptParser().parse(source);
+            program.verify();
+        }
+    }
+
+    @Test
+    public void mutatedProgramsOnlyReportParseErrors() {
+        for (int seed = 0; seed < 500; seed++) {
+            String source = new ProgramGenerator(seed).setFunctions(1 + seed % 5).setDepth(seed % 4)
+                    .generateInvalid(1 + seed % 8);
+            CatScriptProgram program = new CatScriptParser().parse(source);
+            try {
+                program.verify();
+            } catch (ParseErrorException e) {
+                for (ParseError error : e.getErrors()) {
+                    assertNotNull(error.getLocation(), source);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void parallelVerifyReportsTheSameErrors() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int seed = 0; seed < 200; seed++) {
+                String source = new ProgramGenerator(seed).setFunctions(2 + seed % 20).setDepth(seed % 4)
+                        .generateInvalid(seed % 6);
+                for (boolean lazy : new boolean[]{false, true}) {
+                    CatScriptParser parser = new CatScriptParser();
+                    parser.setLazyFunctionBodies(lazy);
+                    assertEquals(verifyErrors(parser.parse(source), null),
+                            verifyErrors(parser.parse(source), pool), source);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private String verifyErrors(CatScriptProgram program, ForkJoinPool pool) {
+        try {
+            if (pool == null) {
+                program.verify();
+            } else {
+                program.verifyInParallel(pool);
+            }
+            return "";
+        } catch (ParseErrorException e) {
+            StringBuilder sb = new StringBuilder();
+            for (ParseError error : e.getErrors()) {
+                sb.append(error.getErrorType()).append(' ').append(error.getLocation()).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
     private void assertError(List<ParseError> errors, int errorIndex, ErrorType errorType) {
         assertError(errors, errorIndex, errorType, -1, -1);
     }
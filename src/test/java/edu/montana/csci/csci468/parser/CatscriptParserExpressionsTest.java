@@ -198,4 +198,26 @@ public class CatscriptParserExpressionsTest extends CatscriptTestBase {
         assertFalse(expr.isEqual());
     }
 
+    @Test
+    public void operatorsBindByPrecedenceLevel() {
+        EqualityExpression expr = parseExpression("1 - 2 * 3 < 4 == 5 / 6 - -7 >= 8", false);
+        ComparisonExpression lessThan = (ComparisonExpression) expr.getLeftHandSide();
+        AdditiveExpression subtraction = (AdditiveExpression) lessThan.getLeftHandSide();
+        assertFalse(subtraction.isAdd());
+        assertTrue(subtraction.getRightHandSide() instanceof FactorExpression);
+        ComparisonExpression greaterThan = (ComparisonExpression) expr.getRightHandSide();
+        AdditiveExpression difference = (AdditiveExpression) greaterThan.getLeftHandSide();
+        assertTrue(difference.getLeftHandSide() instanceof FactorExpression);
+        assertTrue(difference.getRightHandSide() instanceof UnaryExpression);
+    }
+
+    @Test
+    public void mixedLevelsAreLeftAssociative() {
+        AdditiveExpression expr = parseExpression("1 - 2 + 3 * 4 - 5");
+        assertFalse(expr.isAdd());
+        AdditiveExpression left = (AdditiveExpression) expr.getLeftHandSide();
+        assertTrue(left.isAdd());
+        assertTrue(left.getRightHandSide() instanceof FactorExpression);
+        assertTrue(left.getLeftHandSide() instanceof AdditiveExpression);
+    }
 }
@@ -1,11 +1,29 @@
 package edu.montana.csci.csci468.parser;
 
 import edu.montana.csci.csci468.CatscriptTestBase;
+import edu.montana.csci.csci468.bench.ProgramGenerator;
 import edu.montana.csci.csci468.parser.expressions.*;
 import edu.montana.csci.csci468.parser.statements.*;
+import edu.montana.csci.csci468.bytecode.ByteCodeGenerator;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class CatscriptParserStatementsTest extends CatscriptTestBase {
 
@@ -139,6 +157,20 @@ public class CatscriptParserStatementsTest extends CatscriptTestBase {
         assertEquals(3, expr.getArguments().size());
     }
 
+    @Test
+    public void leadingFunctionCallStartsTheProgram() {
+        String source = "foo(1 + 1)\nprint(3)\nfunction foo(a : int) { print(a) }";
+        CatScriptProgram program = new CatScriptParser().parse(source);
+        assertFalse(program.isExpression());
+        assertEquals(3, program.getStatements().size());
+        FunctionCallStatement call = (FunctionCallStatement) program.getStatements().get(0);
+        assertEquals("foo", call.getName());
+        assertEquals("foo", call.getStart().getStringValue());
+        assertTrue(call.getArguments().get(0) instanceof AdditiveExpression);
+        assertTrue(program.getStatements().get(1) instanceof PrintStatement);
+        assertEquals("2\n3\n", executeProgram(source));
+    }
+
     @Test
     public void functionDefStatement() {
         FunctionDefinitionStatement expr = parseStatement("function x() {}");
@@ -194,4 +226,302 @@ public class CatscriptParserStatementsTest extends CatscriptTestBase {
         assertTrue(returnStmt.getExpression() instanceof IntegerLiteralExpression);
     }
 
+    @Test
+    public void sourcesAreParsedAsExpressionsOnlyWhenTheyAreOne() {
+        assertTrue(new CatScriptParser().parse("x").isExpression());
+        assertTrue(new CatScriptParser().parse("x + 1").isExpression());
+        assertTrue(new CatScriptParser().parse("foo(1, 2)").isExpression());
+        assertTrue(new CatScriptParser().parse("-1").isExpression());
+        assertTrue(new CatScriptParser().parse("print").isExpression());
+
+        assertEquals(2, new CatScriptParser().parse("foo(1)\nprint(2)").getStatements().size());
+        assertEquals(1, new CatScriptParser().parse("x = 1").getStatements().size());
+        assertEquals(1, new CatScriptParser().parse("var x = 1").getStatements().size());
+        assertEquals(1, new CatScriptParser().parse("print(1)").getStatements().size());
+        assertEquals(1, new CatScriptParser().parse("function f() {}").getStatements().size());
+        assertFalse(new CatScriptParser().parse("x y").isExpression());
+    }
+
+    @Test
+    public void parallelParseMatchesSequentialParse() {
+        String src = "function f(a : int, b) {\n  if (a > 1) { print(a) } else { return [1, 2] }\n}\n" +
+                "var x = 1\n" +
+                "if (x > 0) { function nested() { print(x) } }\n" +
+                "function g() : list<int> { return [x, (x + 1)] }\n" +
+                "function h() print(1) }\n" +
+                "function i() { if (true { print(2) } }\n" +
+                "}\n" +
+                "function j() { print(3) \n";
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int copies = 1; copies <= 4; copies++) {
+                String source = src.repeat(copies);
+                String expected = describe(new CatScriptParser().parse(source));
+                for (int run = 0; run < 10; run++) {
+                    assertEquals(expected, describe(new CatScriptParser().parseInParallel(source, pool)));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void reparsedEditsMatchAFreshParse() {
+        String source = "var x = 1\n" +
+                "function f(a : int) : int {\n  if (a > x) { return a } else { return x }\n}\n" +
+                "print(f(2))\n" +
+                "for (i in [1, 2, 3]) { print(i + x) }\n" +
+                "var s = \"str\"\n" +
+                "print(s)\n";
+        String[][] edits = {
+                {"print(f(2))", "print(f(3))"},
+                {"var s", "var t = 2\nvar s"},
+                {"return a }", "return a + 1 }"},
+                {"print(s)\n", ""},
+                {"var x = 1", "var x = \"1"},
+                {"var x = \"1", "var x = 1"},
+                {"[1, 2, 3]", "[1, 2, 3"},
+                {"[1, 2, 3", "[1, 2, 3]"},
+                {"print(f(3))\n", "print(f(3))\n}\n"},
+                {"print(f(3))\n}\n", "print(f(3))\n"},
+                {"var x = 1\n", ""},
+                {"", "var y = 2 + 3\n"},
+        };
+        CatScriptProgram program = new CatScriptParser().parse(source);
+        for (String[] edit : edits) {
+            source = edit[0].isEmpty() ? edit[1] + source : source.replace(edit[0], edit[1]);
+            program = new CatScriptParser().reparse(program, source);
+            CatScriptProgram fresh = new CatScriptParser().parse(source);
+            assertEquals(describe(fresh), describe(program));
+            assertEquals(describeVerified(fresh), describeVerified(program));
+        }
+    }
+
+    @Test
+    public void reparsingReusesStatementsOutsideTheEdit() {
+        String source = "var x = 1\nfunction f(a : int) : int {\n  return a + x\n}\nprint(f(2))\nprint(x)\n";
+        CatScriptProgram program = new CatScriptParser().parse(source);
+        List<Statement> before = program.getStatements();
+        CatScriptProgram edited = new CatScriptParser().reparse(program, source.replace("f(2)", "f(20)"));
+        List<Statement> after = edited.getStatements();
+        assertSame(before.get(0), after.get(0));
+        assertSame(before.get(1), after.get(1));
+        assertNotSame(before.get(2), after.get(2));
+        assertSame(before.get(3), after.get(3));
+        assertEquals(6, after.get(3).getStart().getLine());
+        assertEquals(source.indexOf("print(x)") + 1, after.get(3).getStart().getStart());
+        assertEquals("21\n1\n", executeProgram(edited));
+    }
+
+    private static final String SERIALIZED_SOURCE = "function add(a : int, b : int) : int { return a + b }\n" +
+            "function greet(name) { print(\"hi \" + name) }\n" +
+            "var xs : list<int> = [1, 2, 3]\n" +
+            "var total = add(1, 2)\n" +
+            "for (x in xs) {\n" +
+            "  if (x >= 2) { print(add(x, -total)) } else { print(x * 2 / 1) }\n" +
+            "}\n" +
+            "greet(\"cat\")\n" +
+            "print(total != 1)\n" +
+            "print([[true], [false]])\n" +
+            "print(null)\n";
+
+    @Test
+    public void serializedProgramsReadBackTheSameTree() throws IOException {
+        CatScriptProgram program = new CatScriptParser().parse(SERIALIZED_SOURCE);
+        program.verify();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ProgramSerializer.write(program, bytes);
+        CatScriptProgram loaded = ProgramSerializer.read(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(describe(program), describe(loaded));
+        assertEquals(program.getStatements().get(2).getStart().getLine(), loaded.getStatements().get(2).getStart().getLine());
+        assertEquals(((VariableStatement) program.getStatements().get(2)).getType(), ((VariableStatement) loaded.getStatements().get(2)).getType());
+        loaded.execute();
+        assertEquals(executeProgram(SERIALIZED_SOURCE), loaded.getOutput());
+        CatScriptProgram compiled = new ByteCodeGenerator(ProgramSerializer.read(new ByteArrayInputStream(bytes.toByteArray()))).compileToBytecode();
+        compiled.execute();
+        assertEquals(executeProgram(SERIALIZED_SOURCE), compiled.getOutput());
+    }
+
+    @Test
+    public void programCacheLoadsVerifiedPrograms(@TempDir Path directory) {
+        ProgramCache cache = new ProgramCache(directory);
+        assertFalse(cache.contains(SERIALIZED_SOURCE));
+        CatScriptProgram parsed = cache.load(SERIALIZED_SOURCE);
+        assertTrue(cache.contains(SERIALIZED_SOURCE));
+        CatScriptProgram loaded = cache.load(SERIALIZED_SOURCE);
+        assertNotSame(parsed, loaded);
+        assertNull(loaded.getTokens());
+        assertEquals(describe(parsed), describe(loaded));
+        loaded.execute();
+        assertEquals(executeProgram(SERIALIZED_SOURCE), loaded.getOutput());
+
+        assertThrows(ParseErrorException.class, () -> cache.load("print(y)"));
+        assertFalse(cache.contains("print(y)"));
+    }
+
+    @Test
+    public void tokensLoadedFromTheCacheKeepTheirLines(@TempDir Path directory) {
+        ProgramCache cache = new ProgramCache(directory);
+        cache.load(SERIALIZED_SOURCE);
+        CatScriptProgram loaded = cache.load(SERIALIZED_SOURCE);
+        assertNull(loaded.getTokens());
+        Statement greet = loaded.getStatements().get(1);
+        assertEquals("function greet(name) { print(\"hi \" + name) }", greet.getStart().getLineContent());
+        assertThrows(IllegalStateException.class, () -> greet.getStart().getByteStart());
+    }
+
+    @Test
+    public void programCacheEvictsLeastRecentlyUsedEntries(@TempDir Path directory) throws InterruptedException {
+        ProgramCache cache = new ProgramCache(directory, 2);
+        cache.load("print(1)");
+        Thread.sleep(20);
+        cache.load("print(2)");
+        Thread.sleep(20);
+        cache.load("print(1)");
+        Thread.sleep(20);
+        cache.load("print(3)");
+        assertTrue(cache.contains("print(1)"));
+        assertFalse(cache.contains("print(2)"));
+        assertTrue(cache.contains("print(3)"));
+    }
+
+    @Test
+    public void programCacheIgnoresEntriesOthersCanWrite(@TempDir Path directory) throws IOException {
+        assumeTrue(directory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        ProgramCache cache = new ProgramCache(directory);
+        cache.load("print(1)");
+        cache.load("print(2)");
+        // the entry for print(2) planted under print(1)'s name by someone else
+        Path planted = null;
+        Path other = null;
+        try (Stream<Path> entries = Files.list(directory)) {
+            for (Path entry : entries.collect(Collectors.toList())) {
+                if (planted == null) {
+                    planted = entry;
+                } else {
+                    other = entry;
+                }
+            }
+        }
+        Files.copy(other, planted, StandardCopyOption.REPLACE_EXISTING);
+        Files.setPosixFilePermissions(planted, PosixFilePermissions.fromString("rw-rw-rw-"));
+        CatScriptProgram first = cache.load("print(1)");
+        CatScriptProgram second = cache.load("print(2)");
+        first.execute();
+        second.execute();
+        assertNotEquals(first.getOutput(), second.getOutput());
+    }
+
+    @Test
+    public void programCacheRefusesDirectoriesOthersCanWrite(@TempDir Path directory) throws IOException {
+        assumeTrue(directory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path shared = Files.createDirectory(directory.resolve("shared"));
+        Files.setPosixFilePermissions(shared, PosixFilePermissions.fromString("rwxrwxrwx"));
+        assertThrows(IllegalArgumentException.class, () -> new ProgramCache(shared));
+    }
+
+    @Test
+    public void programCacheMakesOwnerOnlyDirectories(@TempDir Path directory) throws IOException {
+        assumeTrue(directory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path made = directory.resolve("catscript").resolve("cache");
+        new ProgramCache(made);
+        assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(made));
+    }
+
+    @Test
+    public void streamedSourcesParseLikeStrings() {
+        String list = IntStream.rangeClosed(1, 200).mapToObj(Integer::toString).collect(Collectors.joining(", "));
+        String longStatement = "var xs = [" + list + "]\nprint(xs)\nprint([" + list + "])";
+        CatScriptProgram streamed = new CatScriptParser().parse(new StringReader(longStatement));
+        streamed.verify();
+        streamed.execute();
+        assertEquals(executeProgram(longStatement), streamed.getOutput());
+        for (int seed = 0; seed < 20; seed++) {
+            String source = new ProgramGenerator(seed).setFunctions(1 + seed % 5).setDepth(seed % 4)
+                    .setListWidth(40).generate();
+            CatScriptProgram parsed = new CatScriptParser().parse(source);
+            assertEquals(describeVerified(parsed), describeVerified(new CatScriptParser().parse(new StringReader(source))));
+        }
+    }
+
+    @Test
+    public void generatedScriptsWithoutFunctionsParse() {
+        for (int seed = 0; seed < 20; seed++) {
+            String source = new ProgramGenerator(seed).setFunctions(0).setTopLevelStatements(50).setDepth(seed % 4).generate();
+            CatScriptProgram program = new CatScriptParser().parse(source);
+            program.verify();
+            assertFalse(program.getStatements().stream().anyMatch(statement -> statement instanceof FunctionDefinitionStatement));
+        }
+    }
+
+    @Test
+    public void lazyFunctionBodiesParseLikeEagerOnes() {
+        for (int seed = 0; seed < 20; seed++) {
+            String source = new ProgramGenerator(seed).setFunctions(1 + seed % 5).setDepth(seed % 4).generate();
+            CatScriptProgram eager = new CatScriptParser().parse(source);
+            eager.verify();
+            CatScriptParser parser = new CatScriptParser();
+            parser.setLazyFunctionBodies(true);
+            CatScriptProgram lazy = parser.parse(source);
+            lazy.verify();
+            for (Statement statement : lazy.getStatements()) {
+                if (statement instanceof FunctionDefinitionStatement) {
+                    ((FunctionDefinitionStatement) statement).getBody();
+                }
+            }
+            assertEquals(describe(eager), describe(lazy));
+        }
+    }
+
+    @Test
+    public void lazyFunctionBodiesAreValidatedWhenCalled() {
+        CatScriptParser parser = new CatScriptParser();
+        parser.setLazyFunctionBodies(true);
+        CatScriptProgram program = parser.parse("function f() { print(1 + true) }\n" +
+                "function g() { print(1 + true) }\n" +
+                "f()");
+        FunctionDefinitionStatement g = (FunctionDefinitionStatement) program.getStatements().get(1);
+        assertTrue(g.isBodyDeferred());
+        ParseErrorException exception = assertThrows(ParseErrorException.class, program::verify);
+        assertEquals(1, exception.getErrors().size());
+        assertEquals(1, exception.getErrors().get(0).getLocation().getLine());
+        assertTrue(g.isBodyDeferred());
+
+        program = parser.parse("g()\nfunction g() { print(x) }");
+        exception = assertThrows(ParseErrorException.class, program::verify);
+        assertEquals(ErrorType.UNKNOWN_NAME, exception.getErrors().get(0).getErrorType());
+
+        program = parser.parse("var x = 1\nfunction f(a : int) : int { return a + x }\nprint(f(1))");
+        assertEquals("2\n", executeProgram(program));
+    }
+
+    private String executeProgram(CatScriptProgram program) {
+        program.verify();
+        program.execute();
+        return program.getOutput();
+    }
+
+    private String describeVerified(CatScriptProgram program) {
+        try {
+            program.verify();
+        } catch (RuntimeException e) {
+            // the errors are left on the elements, even when reporting them fails
+        }
+        return describe(program);
+    }
+
+    private String describe(ParseElement element) {
+        StringBuilder sb = new StringBuilder(element.toString());
+        if (element.getStart() != null) {
+            sb.append("@").append(element.getStart().getStart()).append(":").append(element.getStart().getLine());
+        }
+        sb.append(element.getErrors().stream().map(ParseError::getErrorType).collect(Collectors.toList()));
+        sb.append("(");
+        for (ParseElement child : element.getChildren()) {
+            sb.append(describe(child)).append(" ");
+        }
+        return sb.append(")").toString();
+    }
 }
@@ -1,13 +1,21 @@
 package edu.montana.csci.csci468.parser;
 
 import edu.montana.csci.csci468.CatscriptTestBase;
+import edu.montana.csci.csci468.parser.expressions.IdentifierExpression;
+import edu.montana.csci.csci468.parser.statements.CatScriptProgram;
+import edu.montana.csci.csci468.parser.statements.FunctionDefinitionStatement;
+import edu.montana.csci.csci468.parser.statements.IfStatement;
 import edu.montana.csci.csci468.parser.statements.PrintStatement;
 import edu.montana.csci.csci468.parser.statements.Statement;
 import edu.montana.csci.csci468.parser.statements.VariableStatement;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class CatscriptParserSymbolCheckingTest extends CatscriptTestBase {
 
@@ -60,4 +68,96 @@ public class CatscriptParserSymbolCheckingTest extends CatscriptTestBase {
         assertNotNull(statement);
     }
 
+    @Test
+    void unknownNamesInsideExpressionsAreErrors() {
+        assertUnknownName("print(-x)");
+        assertUnknownName("if(x){ print(1) }");
+        assertUnknownName("print([x, 1] == [1])");
+        assertUnknownName("print(foo(x))");
+        assertEquals(ErrorType.INCOMPATIBLE_TYPES, getParseError("var y = [1, 2] * 3"));
+    }
+
+    @Test
+    void variablesResolveToSlots() {
+        String source = "var x = 1\n" +
+                "var y = 2\n" +
+                "if(true){ var a = x } else { var b = y }\n" +
+                "function foo(p : int) { var q = p }\n";
+        VariableStatement y = parseStatement(source, 1);
+        assertEquals(SymbolTable.GLOBAL, y.getDepth());
+        assertEquals(1, y.getSlot());
+
+        // sibling blocks share a slot
+        IfStatement ifStatement = parseStatement(source, 2);
+        VariableStatement a = (VariableStatement) ifStatement.getTrueStatements().get(0);
+        VariableStatement b = (VariableStatement) ifStatement.getElseStatements().get(0);
+        assertEquals(SymbolTable.LOCAL, a.getDepth());
+        assertEquals(0, a.getSlot());
+        assertEquals(0, b.getSlot());
+        IdentifierExpression x = (IdentifierExpression) a.getExpression();
+        assertEquals(SymbolTable.GLOBAL, x.getDepth());
+        assertEquals(0, x.getSlot());
+
+        // parameters come first in a function's frame
+        FunctionDefinitionStatement foo = parseStatement(source, 3);
+        VariableStatement q = (VariableStatement) foo.getBody().get(0);
+        assertEquals(SymbolTable.LOCAL, q.getDepth());
+        assertEquals(1, q.getSlot());
+        assertEquals(0, ((IdentifierExpression) q.getExpression()).getSlot());
+        assertEquals(2, foo.getFrameSize());
+    }
+
+    @Test
+    void symbolMapsAreNotChangedByPut() {
+        SymbolMap empty = SymbolMap.EMPTY;
+        SymbolMap map = empty;
+        for (int i = 0; i < 1000; i++) {
+            map = map.put("x" + i, i);
+        }
+        // equal hash codes
+        SymbolMap aa = map.put("Aa", 1);
+        SymbolMap both = aa.put("BB", 2);
+        assertEquals(1, both.get("Aa"));
+        assertEquals(2, both.get("BB"));
+        assertNull(aa.get("BB"));
+        assertEquals(3, both.put("BB", 3).get("BB"));
+        assertEquals(2, both.get("BB"));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, both.get("x" + i));
+        }
+        assertNull(empty.get("x0"));
+    }
+
+    @Test
+    void snapshotsKeepTheirNames() {
+        SymbolTable table = new SymbolTable();
+        table.registerSymbol("x", CatscriptType.INT);
+        table.pushScope();
+        table.registerSymbol("y", CatscriptType.STRING);
+        SymbolTable snapshot = table.snapshot();
+        table.registerSymbol("z", CatscriptType.BOOLEAN);
+        table.popScope();
+        assertTrue(snapshot.hasSymbol("y"));
+        assertFalse(snapshot.hasSymbol("z"));
+        assertFalse(table.hasSymbol("y"));
+        assertTrue(table.hasSymbol("x"));
+        snapshot.popScope();
+        assertFalse(snapshot.hasSymbol("y"));
+        assertTrue(snapshot.hasSymbol("x"));
+    }
+
+    @Test
+    void lazyFunctionBodiesSeeTheNamesAtTheirDefinition() {
+        CatScriptParser parser = new CatScriptParser();
+        parser.setLazyFunctionBodies(true);
+        CatScriptProgram program = parser.parse("function f() { print(x) }\nvar x = 1\nf()");
+        ParseErrorException exception = assertThrows(ParseErrorException.class, program::verify);
+        assertEquals(ErrorType.UNKNOWN_NAME, exception.getErrors().get(0).getErrorType());
+        assertEquals(ErrorType.UNKNOWN_NAME, getParseError("function f() { print(x) }\nvar x = 1\nf()"));
+    }
+
+    private void assertUnknownName(String source) {
+        assertTrue(getErrors(source).stream().anyMatch(error -> error.getErrorType() == ErrorType.UNKNOWN_NAME), source);
+    }
+
 }
@@ -7,6 +7,14 @@ import edu.montana.csci.csci468.parser.statements.PrintStatement;
 import edu.montana.csci.csci468.parser.statements.Statement;
 import edu.montana.csci.csci468.parser.statements.VariableStatement;
 import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class CatscriptParserTypeCheckingTest extends CatscriptTestBase {
@@ -77,5 +85,93 @@ public class CatscriptParserTypeCheckingTest extends CatscriptTestBase {
         assertEquals(ErrorType.INCOMPATIBLE_TYPES, getParseError("1 > true"));
     }
 
+    @Test
+    void typesAreInterned() {
+        CatscriptType nested = CatscriptType.getListType(CatscriptType.getListType(CatscriptType.INT));
+        assertSame(nested, CatscriptType.getListType(CatscriptType.getListType(CatscriptType.INT)));
+        VariableStatement var = parseStatement("var x : list<list<int>> = [[1]]");
+        assertSame(nested, var.getType());
+        assertSame(nested, var.getExpression().getType());
+        assertNotSame(nested, CatscriptType.getListType(CatscriptType.getListType(CatscriptType.OBJECT)));
+    }
+
+    @Test
+    void listTypesAreInternedAcrossThreads() throws Exception {
+        int threads = 8;
+        int depth = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 20; round++) {
+                // a component type no earlier round has made lists of
+                CatscriptType base = CatscriptType.STRING;
+                for (int i = 0; i < round * depth; i++) {
+                    base = CatscriptType.getListType(base);
+                }
+                CatscriptType component = base;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<CatscriptType[]>> results = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        CatscriptType[] types = new CatscriptType[depth];
+                        CatscriptType type = component;
+                        for (int i = 0; i < depth; i++) {
+                            type = CatscriptType.getListType(type);
+                            types[i] = type;
+                        }
+                        return types;
+                    }));
+                }
+                start.countDown();
+                CatscriptType[] first = results.get(0).get();
+                for (Future<CatscriptType[]> result : results) {
+                    CatscriptType[] types = result.get();
+                    for (int i = 0; i < depth; i++) {
+                        assertSame(first[i], types[i]);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void assignabilityMatchesTheTypeRules() {
+        List<CatscriptType> types = new ArrayList<>(List.of(CatscriptType.INT, CatscriptType.STRING,
+                CatscriptType.BOOLEAN, CatscriptType.OBJECT, CatscriptType.NULL, CatscriptType.VOID));
+        for (int depth = 0; depth < 3; depth++) {
+            for (CatscriptType type : new ArrayList<>(types)) {
+                types.add(CatscriptType.getListType(type));
+            }
+        }
+        for (CatscriptType to : types) {
+            for (CatscriptType from : types) {
+                assertEquals(assignable(to, from), to.isAssignableFrom(from), to + " from " + from);
+            }
+        }
+        // types made after the ones they are checked against
+        CatscriptType deep = CatscriptType.getListType(CatscriptType.getListType(CatscriptType.getListType(
+                CatscriptType.getListType(CatscriptType.STRING))));
+        assertTrue(CatscriptType.OBJECT.isAssignableFrom(deep));
+        assertTrue(CatscriptType.getListType(CatscriptType.OBJECT).isAssignableFrom(deep));
+        assertFalse(CatscriptType.getListType(CatscriptType.INT).isAssignableFrom(deep));
+        assertTrue(deep.isAssignableFrom(CatscriptType.NULL));
+    }
+
+    // the rules as written before assignability was precomputed
+    private static boolean assignable(CatscriptType to, CatscriptType from) {
+        if (to instanceof CatscriptType.ListType) {
+            if (from == CatscriptType.NULL) {
+                return true;
+            }
+            return from instanceof CatscriptType.ListType && assignable(((CatscriptType.ListType) to).getComponentType(),
+                    ((CatscriptType.ListType) from).getComponentType());
+        }
+        if (from == CatscriptType.VOID) {
+            return false;
+        }
+        return from == CatscriptType.NULL || to.getJavaType().isAssignableFrom(from.getJavaType());
+    }
 
 }
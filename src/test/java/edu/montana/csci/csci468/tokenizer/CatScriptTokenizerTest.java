@@ -3,7 +3,16 @@ package edu.montana.csci.csci468.tokenizer;
 import edu.montana.csci.csci468.CatscriptTestBase;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import static edu.montana.csci.csci468.tokenizer.TokenType.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -54,6 +63,20 @@ public class CatScriptTokenizerTest extends CatscriptTestBase {
         assertTokensAre("\"asdf\\", ERROR, EOF);
     }
 
+    @Test
+    public void escapedBackslashesEndStrings(){
+        // this is the string "asdf\\", an escaped backslash followed by the closing quote
+        assertTokensAre("\"asdf\\\\\" 1", STRING, INTEGER, EOF);
+        assertTokensAre("\"asdf\\\\\" 1", "asdf\\\\", "1", "<EOF>");
+    }
+
+    @Test
+    public void largeStringLiteralsTokenize(){
+        String body = "a".repeat(100_000);
+        assertTokensAre("\"" + body + "\"", body, "<EOF>");
+        assertTokensAre("\"" + body, ERROR, EOF);
+    }
+
     @Test
     public void basicIdentifiers(){
         assertTokensAre("asdf", IDENTIFIER, EOF);
@@ -70,6 +93,14 @@ public class CatScriptTokenizerTest extends CatscriptTestBase {
                 PRINT, RETURN, TRUE, VAR, EOF);
     }
 
+    @Test
+    public void keywordLookalikesAreIdentifiers(){
+        assertTokensAre("elses f fo iff i inn no nulls printer r tru v variable Var _if",
+                IDENTIFIER, IDENTIFIER, IDENTIFIER, IDENTIFIER, IDENTIFIER, IDENTIFIER,
+                IDENTIFIER, IDENTIFIER, IDENTIFIER, IDENTIFIER, IDENTIFIER, IDENTIFIER,
+                IDENTIFIER, IDENTIFIER, IDENTIFIER, EOF);
+    }
+
     @Test
     public void basicSyntax(){
         assertTokensAre("( ) { } [ ] : , . - + / * != = == > >= < <=",
@@ -83,6 +114,21 @@ public class CatScriptTokenizerTest extends CatscriptTestBase {
                 LESS, LESS_EQUAL, EOF);
     }
 
+    @Test
+    public void syntaxValuesAreTheirLexemes(){
+        assertTokensAre("/ >= > var \"a\" 12 foo", "/", ">=", ">", "var", "a", "12", "foo", "<EOF>");
+    }
+
+    @Test
+    public void tokenListMatchesIdentifiersWithoutMaterializing(){
+        TokenList tokens = getTokenList("foo foobar");
+        assertTrue(tokens.match("foo"));
+        assertFalse(tokens.match("fo"));
+        tokens.consumeToken();
+        assertTrue(tokens.match("foobar"));
+        assertFalse(tokens.match("foo"));
+    }
+
     @Test
     public void commentsAreIgnored(){
         assertTokensAre("/ //   //// asdfasdf \"asdf\"\n" +
@@ -147,4 +193,215 @@ public class CatScriptTokenizerTest extends CatscriptTestBase {
     }
 
 
+    @Test
+    public void streamingTokenizerMatchesStringTokenizer() throws Exception {
+        String src = "var x = \"hello\" // comment\n" +
+                "/* block\n comment */ function foo(a : int, b) {\n" +
+                "  if (a >= 10) { print(a) } else { return [1, 2, 3] }\n" +
+                "}\n\"multi\nline\" \"unterminated";
+        List<String> expected = describe(new CatScriptTokenizer(src).getTokens());
+        for (int chunkSize = 1; chunkSize <= 16; chunkSize++) {
+            StringReader reader = new StringReader(src);
+            assertEquals(expected, describe(new CatScriptTokenizer(reader::read, chunkSize).getTokens()));
+        }
+        assertEquals(expected, describe(new CatScriptTokenizer(new StringReader(src)).getTokens()));
+        assertEquals(expected, describe(new CatScriptTokenizer(CharBuffer.wrap(src)).getTokens()));
+
+        Path file = Files.createTempFile("tokenizer", ".cat");
+        try {
+            Files.write(file, src.getBytes(StandardCharsets.UTF_8));
+            assertEquals(expected, describe(CatScriptTokenizer.mapFile(file).getTokens()));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void streamingTokenizerIsLazyAndReleasesConsumedTokens() {
+        StringReader reader = new StringReader("a b c d e f g");
+        TokenList tokens = new CatScriptTokenizer(reader::read, 2).getTokens();
+        assertEquals("a", tokens.consumeToken().getStringValue());
+        assertEquals("b", tokens.consumeToken().getStringValue());
+        assertEquals("c", tokens.consumeToken().getStringValue());
+        tokens.discardConsumed();
+        assertThrows(IllegalStateException.class, tokens::reset);
+        assertEquals("c", tokens.lastToken().getStringValue());
+        assertEquals("a b c d e f g", tokens.getCurrentToken().getLineContent());
+        assertEquals(List.of("c", "d", "e", "f", "g", "<EOF>"),
+                tokens.stream().map(Token::getStringValue).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void linesInsideCommentsAndStringsAreCounted() {
+        final List<Token> tokenList = getTokensAsList("/* a\nb */ x \"c\nd\" y");
+        assertEquals(2, tokenList.get(0).getLine());
+        assertEquals(5, tokenList.get(0).getLineOffset());
+        assertEquals(2, tokenList.get(1).getLine());
+        assertEquals(3, tokenList.get(2).getLine());
+    }
+
+    @Test
+    public void lineContentIsLookedUpByLine() {
+        String source = "var x = 1\r\n\n  print(x)\n/* a\nb */ y\n";
+        CatScriptTokenizer tokenizer = new CatScriptTokenizer(source);
+        assertEquals("var x = 1\r", tokenizer.getLineContent(1));
+        assertEquals("", tokenizer.getLineContent(2));
+        assertEquals("  print(x)", tokenizer.getLineContent(3));
+        assertEquals("b */ y", tokenizer.getLineContent(5));
+        assertEquals("", tokenizer.getLineContent(6));
+        assertThrows(IndexOutOfBoundsException.class, () -> tokenizer.getLineContent(7));
+        for (Token token : tokenizer.getTokens()) {
+            assertEquals(token.getLineContent(), tokenizer.getLineContent(token.getLine()));
+        }
+    }
+
+    @Test
+    public void retokenizedEditsMatchAFreshTokenize() {
+        String src = "var x = \"hi\" // c\n/* a\n b */ if (x != 10) {\n  print(x)\n}\n";
+        TokenList previous = new CatScriptTokenizer(src).getTokens();
+        String[] insertions = {"", "x", "\"", "/*", "*/", "//", "\n", "=", "!", " 12 "};
+        for (int offset = 0; offset <= src.length(); offset++) {
+            for (int removed = 0; removed <= 3 && offset + removed <= src.length(); removed++) {
+                for (String inserted : insertions) {
+                    String edited = src.substring(0, offset) + inserted + src.substring(offset + removed);
+                    List<String> expected = describe(new CatScriptTokenizer(edited).getTokens());
+                    CatScriptTokenizer tokenizer = new CatScriptTokenizer(previous, offset, removed, inserted);
+                    assertEquals(expected, describe(tokenizer.getTokens()), edited);
+                    assertEquals(expected, describe(CatScriptTokenizer.retokenize(previous, edited).getTokens()), edited);
+                    String[] lines = edited.split("\n", -1);
+                    for (int line = 1; line <= lines.length; line++) {
+                        assertEquals(lines[line - 1], tokenizer.getLineContent(line), edited);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void parallelTokenizerMatchesSequentialTokenizer() {
+        String src = "var x = \"hello\" // comment \"\n" +
+                "/* block\n \" comment */ function foo(a : int, b) {\n" +
+                "  if (a >= 10) { print(a) } else { return [1, 2, 3] }\n" +
+                "}\n\"multi\nline\\\"\n\" x /*/ y\n z */ ! \n\n";
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int copies = 1; copies <= 8; copies++) {
+                String source = src.repeat(copies) + "\"unterminated\n";
+                List<String> expected = describe(new CatScriptTokenizer(source).getTokens());
+                for (int chunkSize = 1; chunkSize <= 64; chunkSize++) {
+                    CatScriptTokenizer tokenizer = ParallelTokenizer.tokenize(source, pool, chunkSize);
+                    assertEquals(expected, describe(tokenizer.getTokens()));
+                    String[] lines = source.split("\n", -1);
+                    for (int line = 1; line <= lines.length; line++) {
+                        assertEquals(lines[line - 1], tokenizer.getLineContent(line));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void identifiersAndStringsAreInterned() {
+        String src = "x yy x \"yy\" yy \"x\" xy";
+        List<Token> tokens = new CatScriptTokenizer(src).getTokens().stream().collect(Collectors.toList());
+        assertSame(tokens.get(0).getStringValue(), tokens.get(2).getStringValue());
+        assertSame(tokens.get(0).getStringValue(), tokens.get(5).getStringValue());
+        assertSame(tokens.get(1).getStringValue(), tokens.get(3).getStringValue());
+        assertSame(tokens.get(1).getStringValue(), tokens.get(4).getStringValue());
+        assertEquals("xy", tokens.get(6).getStringValue());
+
+        List<Token> streamed = new CatScriptTokenizer(new StringReader(src)).getTokens().stream().collect(Collectors.toList());
+        assertSame(streamed.get(0).getStringValue(), streamed.get(5).getStringValue());
+        assertSame(streamed.get(1).getStringValue(), streamed.get(4).getStringValue());
+
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            names.append("name").append(i % 1000).append(" ");
+        }
+        TokenList many = new CatScriptTokenizer(names.toString()).getTokens();
+        for (int i = 0; i < 1000; i++) {
+            assertSame(many.stringValueAt(i), many.stringValueAt(i + 1000));
+        }
+    }
+
+    @Test
+    public void editedSourcesOnlyInternTheirCurrentNames() {
+        // typing a string literal one character at a time, reading every value as a parser would
+        String prefix = "var greeting = \"";
+        String typed = "the quick brown fox jumps over the lazy dog ".repeat(10);
+        TokenList tokens = new CatScriptTokenizer(prefix + "\"\nprint(greeting)").getTokens();
+        CatScriptTokenizer tokenizer = null;
+        for (int i = 0; i < typed.length(); i++) {
+            tokenizer = new CatScriptTokenizer(tokens, prefix.length() + i, 0, typed.substring(i, i + 1));
+            tokens = tokenizer.getTokens();
+            for (int index = 0; index < tokens.size(); index++) {
+                tokens.stringValueAt(index);
+            }
+        }
+        assertEquals(typed, tokens.stringValueAt(3));
+        assertTrue(tokenizer.getSymbols().size() <= tokens.size());
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TokenList parallel = ParallelTokenizer.tokenize("name x\n".repeat(100), pool, 16).getTokens();
+            for (int i = 0; i + 4 < parallel.size() - 1; i++) {
+                assertSame(parallel.stringValueAt(i), parallel.stringValueAt(i + 4));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void tokenClassesMatchTheirTypes() {
+        TokenList tokens = new CatScriptTokenizer("+ * not").getTokens();
+        long additive = TokenType.mask(PLUS, MINUS);
+        long unary = TokenType.mask(MINUS, NOT);
+        assertTrue(tokens.match(additive));
+        assertFalse(tokens.match(unary));
+        assertTrue(tokens.matchAndConsume(PLUS));
+        assertFalse(tokens.match(additive));
+        assertTrue(tokens.matchAndConsume(STAR));
+        assertTrue(tokens.match(unary));
+        assertTrue(tokens.match(NOT));
+        assertEquals(0, TokenType.mask());
+    }
+
+    @Test
+    public void byteBufferTokenizerMatchesStringTokenizer() {
+        String src = "var s = \"caf\u00e9 \u65e5\u672c \ud83d\ude00\" // \u00fcber\n" +
+                "/* \u2603\n */ print(s) \u00e9 x \"\ud83d\ude00";
+        byte[] bytes = src.getBytes(StandardCharsets.UTF_8);
+        List<String> expected = describe(new CatScriptTokenizer(src).getTokens());
+        for (int chunkSize = 1; chunkSize <= 16; chunkSize++) {
+            CatScriptTokenizer tokenizer = new CatScriptTokenizer(new Utf8Source(ByteBuffer.wrap(bytes)), chunkSize);
+            List<Token> tokens = tokenizer.getTokens().stream().collect(Collectors.toList());
+            assertEquals(expected, tokens.stream().map(token -> token.toString() + " " + token.getLineContent())
+                    .collect(Collectors.toList()));
+            for (Token token : tokens) {
+                assertEquals(src.substring(0, token.getStart()).getBytes(StandardCharsets.UTF_8).length, token.getByteStart());
+                assertEquals(src.substring(0, token.getEnd()).getBytes(StandardCharsets.UTF_8).length, token.getByteEnd());
+            }
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 2);
+        direct.put((byte) ' ').put(bytes).put((byte) ' ').flip().position(1).limit(bytes.length + 1);
+        assertEquals(expected, describe(new CatScriptTokenizer(direct).getTokens()));
+        assertEquals(1, direct.position());
+        assertThrows(IllegalStateException.class, () -> new CatScriptTokenizer(src).getTokens().tokenAt(0).getByteStart());
+    }
+
+    @Test
+    public void malformedUtf8IsAnError() {
+        ByteBuffer truncated = ByteBuffer.wrap(new byte[]{'x', ' ', (byte) 0xE6, (byte) 0x97});
+        assertThrows(UncheckedIOException.class, () -> new CatScriptTokenizer(truncated).getTokens().size());
+        ByteBuffer overlong = ByteBuffer.wrap(new byte[]{(byte) 0xC0, (byte) 0xAF});
+        assertThrows(UncheckedIOException.class, () -> new CatScriptTokenizer(overlong).getTokens().size());
+    }
+
+    private List<String> describe(TokenList tokens) {
+        return tokens.stream().map(token -> token.toString() + " " + token.getLineContent()).collect(Collectors.toList());
+    }
+
 }